@@ -3,6 +3,9 @@ package club.minnced.discord.jdave;
 import static club.minnced.discord.jdave.ffi.LibDave.*;
 
 import club.minnced.discord.jdave.ffi.LibDaveDecryptorBinding;
+import club.minnced.discord.jdave.utils.HandleLifetime;
+import club.minnced.discord.jdave.utils.NativeHandleType;
+import club.minnced.discord.jdave.utils.NativeHandles;
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.nio.ByteBuffer;
@@ -13,13 +16,25 @@ import org.slf4j.LoggerFactory;
 public class DaveDecryptor implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(DaveDecryptor.class);
     private final long userId;
+    // Null-terminated copy of the user id, allocated once and reused for every key ratchet export
+    private final MemorySegment userIdString;
     private final DaveSessionImpl session;
     private final MemorySegment decryptor;
+    // Defers destroying the native decryptor until no media thread is inside a native call anymore
+    private final HandleLifetime lifetime;
+    private final NativeHandles.Handle handle;
+
+    private long preparedEpoch = -1;
+    private int preparedProtocolVersion = -1;
+    private volatile long lastUsedNanos = System.nanoTime();
 
     private DaveDecryptor(long userId, @NonNull DaveSessionImpl session, @NonNull MemorySegment decryptor) {
         this.userId = userId;
+        this.userIdString = Arena.ofAuto().allocateFrom(Long.toUnsignedString(userId));
         this.session = session;
         this.decryptor = decryptor;
+        this.lifetime = new HandleLifetime(this::destroy);
+        this.handle = NativeHandles.track(this, NativeHandleType.DECRYPTOR);
     }
 
     @NonNull
@@ -29,9 +44,28 @@ public class DaveDecryptor implements AutoCloseable {
 
     private void destroy() {
         LibDaveDecryptorBinding.destroyDecryptor(decryptor);
+        handle.free();
+    }
+
+    // Returns whether a key ratchet was exported, which is skipped if nothing changed since the last transition
+    public boolean prepareTransition(int protocolVersion) {
+        long epoch = session.getLocalEpoch();
+        if (epoch == preparedEpoch && protocolVersion == preparedProtocolVersion) {
+            return false;
+        }
+
+        if (!lifetime.tryAcquire()) {
+            return false;
+        }
+
+        try {
+            return doPrepareTransition(protocolVersion, epoch);
+        } finally {
+            lifetime.release();
+        }
     }
 
-    public void prepareTransition(int protocolVersion) {
+    private boolean doPrepareTransition(int protocolVersion, long epoch) {
         log.debug("Preparing transition to protocol version {}", protocolVersion);
         boolean disabled = protocolVersion == DaveConstants.DISABLED_PROTOCOL_VERSION;
 
@@ -40,22 +74,43 @@ public class DaveDecryptor implements AutoCloseable {
         }
 
         LibDaveDecryptorBinding.transitionToPassthroughMode(decryptor, disabled);
+        preparedEpoch = epoch;
+        preparedProtocolVersion = protocolVersion;
+        return !disabled;
     }
 
     private void updateKeyRatchet() {
-        try (DaveKeyRatchet keyRatchet = DaveKeyRatchet.create(session, Long.toUnsignedString(userId))) {
+        try (DaveKeyRatchet keyRatchet = DaveKeyRatchet.create(session, userIdString)) {
             log.debug("Updating key ratchet");
             LibDaveDecryptorBinding.transitionToKeyRatchet(decryptor, keyRatchet.getMemorySegment());
         }
     }
 
     public long getMaxPlaintextByteSize(@NonNull DaveMediaType mediaType, long frameSize) {
-        return LibDaveDecryptorBinding.getMaxPlaintextByteSize(decryptor, mediaType, frameSize);
+        if (!lifetime.tryAcquire()) {
+            return frameSize;
+        }
+
+        try {
+            return LibDaveDecryptorBinding.getMaxPlaintextByteSize(decryptor, mediaType, frameSize);
+        } finally {
+            lifetime.release();
+        }
+    }
+
+    // System.nanoTime() of the last decrypt call, or of the creation if nothing was decrypted yet
+    public long getLastUsedNanos() {
+        return lastUsedNanos;
     }
 
     @NonNull
     public DaveDecryptResult decrypt(
             @NonNull DaveMediaType mediaType, @NonNull ByteBuffer encrypted, @NonNull ByteBuffer decrypted) {
+        lastUsedNanos = System.nanoTime();
+        if (!lifetime.tryAcquire()) {
+            return new DaveDecryptResult(DaveDecryptResultType.FAILURE, 0, DaveDecryptResult.NOT_CALLED);
+        }
+
         try (Arena local = Arena.ofConfined()) {
             MemorySegment bytesWrittenPtr = local.allocate(C_SIZE);
             int result = LibDaveDecryptorBinding.decrypt(
@@ -71,16 +126,22 @@ public class DaveDecryptor implements AutoCloseable {
                 decrypted.limit(decrypted.position() + (int) bytesWritten);
             }
 
-            return new DaveDecryptResult(resultType, bytesWritten);
+            return new DaveDecryptResult(resultType, bytesWritten, result);
+        } finally {
+            lifetime.release();
         }
     }
 
+    // Safe to call while other threads decrypt, the native decryptor is destroyed once they are done
     @Override
     public void close() {
-        destroy();
+        lifetime.close();
     }
 
-    public record DaveDecryptResult(@NonNull DaveDecryptResultType type, long bytesWritten) {}
+    // resultCode is the raw result code of libdave, or NOT_CALLED if the decryptor was already closed
+    public record DaveDecryptResult(@NonNull DaveDecryptResultType type, long bytesWritten, int resultCode) {
+        public static final int NOT_CALLED = -1;
+    }
 
     public enum DaveDecryptResultType {
         SUCCESS,
@@ -4,6 +4,9 @@ import static club.minnced.discord.jdave.ffi.LibDave.C_SIZE;
 import static club.minnced.discord.jdave.ffi.LibDave.readSize;
 
 import club.minnced.discord.jdave.ffi.LibDaveEncryptorBinding;
+import club.minnced.discord.jdave.utils.HandleLifetime;
+import club.minnced.discord.jdave.utils.NativeHandleType;
+import club.minnced.discord.jdave.utils.NativeHandles;
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.nio.ByteBuffer;
@@ -16,11 +19,23 @@ public class DaveEncryptor implements AutoCloseable {
     private final MemorySegment encryptor;
     private final DaveSessionImpl session;
     private final long selfUserId;
+    // Null-terminated copy of the user id, allocated once and reused for every key ratchet export
+    private final MemorySegment userIdString;
+    // Defers destroying the native encryptor until no media thread is inside a native call anymore
+    private final HandleLifetime lifetime;
+    private final NativeHandles.Handle handle;
+
+    private DaveKeyRatchet stagedKeyRatchet;
+    private long stagedEpoch = -1;
+    private long appliedEpoch = -1;
 
     private DaveEncryptor(@NonNull MemorySegment encryptor, @NonNull DaveSessionImpl session, long selfUserId) {
         this.encryptor = encryptor;
         this.session = session;
         this.selfUserId = selfUserId;
+        this.userIdString = Arena.ofAuto().allocateFrom(Long.toUnsignedString(selfUserId));
+        this.lifetime = new HandleLifetime(this::destroy);
+        this.handle = NativeHandles.track(this, NativeHandleType.ENCRYPTOR);
 
         LibDaveEncryptorBinding.setPassthroughMode(encryptor, true);
     }
@@ -31,47 +46,101 @@ public class DaveEncryptor implements AutoCloseable {
     }
 
     private void destroy() {
+        discardStagedKeyRatchet();
         LibDaveEncryptorBinding.destroyEncryptor(encryptor);
+        handle.free();
     }
 
-    public void prepareTransition(int protocolVersion) {
+    // Stages the key ratchet for the next transition, returns whether a new ratchet had to be exported
+    public boolean prepareTransition(int protocolVersion) {
         log.debug("Preparing to transition to protocol version {}", protocolVersion);
         boolean disabled = protocolVersion == DaveConstants.DISABLED_PROTOCOL_VERSION;
+        long epoch = session.getLocalEpoch();
 
-        if (!disabled) {
-            updateKeyRatchet();
+        if (disabled || appliedEpoch == epoch || (stagedKeyRatchet != null && stagedEpoch == epoch)) {
+            return false;
         }
+
+        stageKeyRatchet(epoch);
+        return true;
     }
 
-    public void processTransition(int protocolVersion) {
+    // Swaps in the staged key ratchet, only exports here if nothing was staged for the current epoch
+    public boolean processTransition(int protocolVersion) {
         log.debug("Transitioning to protocol version {}", protocolVersion);
         boolean disabled = protocolVersion == DaveConstants.DISABLED_PROTOCOL_VERSION;
+        boolean exported = false;
 
         if (!disabled) {
-            updateKeyRatchet();
+            long epoch = session.getLocalEpoch();
+            if (appliedEpoch != epoch) {
+                if (stagedKeyRatchet == null || stagedEpoch != epoch) {
+                    stageKeyRatchet(epoch);
+                    exported = true;
+                }
+
+                applyStagedKeyRatchet();
+            }
         }
 
         LibDaveEncryptorBinding.setPassthroughMode(encryptor, disabled);
+        return exported;
     }
 
-    private void updateKeyRatchet() {
-        try (DaveKeyRatchet keyRatchet = DaveKeyRatchet.create(session, Long.toUnsignedString(selfUserId))) {
+    private void stageKeyRatchet(long epoch) {
+        discardStagedKeyRatchet();
+        stagedKeyRatchet = DaveKeyRatchet.create(session, userIdString);
+        stagedEpoch = epoch;
+    }
+
+    private void applyStagedKeyRatchet() {
+        try (DaveKeyRatchet keyRatchet = stagedKeyRatchet) {
             log.debug("Updating key ratchet");
             LibDaveEncryptorBinding.setKeyRatchet(encryptor, keyRatchet.getMemorySegment());
+            appliedEpoch = stagedEpoch;
+        } finally {
+            stagedKeyRatchet = null;
+        }
+    }
+
+    private void discardStagedKeyRatchet() {
+        if (stagedKeyRatchet != null) {
+            stagedKeyRatchet.close();
+            stagedKeyRatchet = null;
         }
     }
 
     public long getMaxCiphertextByteSize(@NonNull DaveMediaType mediaType, long frameSize) {
-        return LibDaveEncryptorBinding.getMaxCiphertextByteSize(encryptor, mediaType.ordinal(), frameSize);
+        if (!lifetime.tryAcquire()) {
+            return frameSize;
+        }
+
+        try {
+            return LibDaveEncryptorBinding.getMaxCiphertextByteSize(encryptor, mediaType.ordinal(), frameSize);
+        } finally {
+            lifetime.release();
+        }
     }
 
     public void assignSsrcToCodec(@NonNull DaveCodec codec, int ssrc) {
-        LibDaveEncryptorBinding.assignSsrcToCodec(encryptor, ssrc, codec.ordinal());
+        if (!lifetime.tryAcquire()) {
+            return;
+        }
+
+        try {
+            LibDaveEncryptorBinding.assignSsrcToCodec(encryptor, ssrc, codec.ordinal());
+        } finally {
+            lifetime.release();
+        }
     }
 
     @NonNull
     public DaveEncryptorResult encrypt(
             @NonNull DaveMediaType mediaType, int ssrc, @NonNull ByteBuffer input, @NonNull ByteBuffer output) {
+        if (!lifetime.tryAcquire()) {
+            return new DaveEncryptorResult(DaveEncryptResultType.FAILURE, 0, DaveEncryptorResult.NOT_CALLED);
+        }
+
         try (Arena local = Arena.ofConfined()) {
             MemorySegment bytesWrittenPtr = local.allocate(C_SIZE);
 
@@ -90,16 +159,22 @@ public class DaveEncryptor implements AutoCloseable {
                 output.limit(output.position() + (int) bytesWritten);
             }
 
-            return new DaveEncryptorResult(resultType, bytesWritten);
+            return new DaveEncryptorResult(resultType, bytesWritten, result);
+        } finally {
+            lifetime.release();
         }
     }
 
+    // Safe to call while other threads encrypt, the native encryptor is destroyed once they are done
     @Override
     public void close() {
-        this.destroy();
+        lifetime.close();
     }
 
-    public record DaveEncryptorResult(@NonNull DaveEncryptResultType type, long bytesWritten) {}
+    // resultCode is the raw result code of libdave, or NOT_CALLED if the encryptor was already closed
+    public record DaveEncryptorResult(@NonNull DaveEncryptResultType type, long bytesWritten, int resultCode) {
+        public static final int NOT_CALLED = -1;
+    }
 
     public enum DaveEncryptResultType {
         SUCCESS,
@@ -3,14 +3,21 @@ package club.minnced.discord.jdave;
 import static club.minnced.discord.jdave.ffi.NativeUtils.isNull;
 
 import club.minnced.discord.jdave.ffi.LibDaveKeyRatchetBinding;
+import club.minnced.discord.jdave.utils.NativeHandleType;
+import club.minnced.discord.jdave.utils.NativeHandles;
 import java.lang.foreign.MemorySegment;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 public class DaveKeyRatchet implements AutoCloseable {
     private final MemorySegment keyRatchet;
+    private final NativeHandles.@Nullable Handle handle;
 
+    // Only registers the instance with the leak detection cleaner
+    @SuppressWarnings("this-escape")
     public DaveKeyRatchet(@NonNull MemorySegment keyRatchet) {
         this.keyRatchet = keyRatchet;
+        this.handle = isNull(keyRatchet) ? null : NativeHandles.track(this, NativeHandleType.KEY_RATCHET);
     }
 
     @NonNull
@@ -22,6 +29,15 @@ public class DaveKeyRatchet implements AutoCloseable {
         return new DaveKeyRatchet(session.getKeyRatchet(userId));
     }
 
+    @NonNull
+    public static DaveKeyRatchet create(@NonNull DaveSessionImpl session, @NonNull MemorySegment userId) {
+        if (session.getProtocolVersion() == DaveConstants.DISABLED_PROTOCOL_VERSION) {
+            return new DaveKeyRatchet(MemorySegment.NULL);
+        }
+
+        return new DaveKeyRatchet(session.getKeyRatchet(userId));
+    }
+
     @NonNull
     public MemorySegment getMemorySegment() {
         return keyRatchet;
@@ -32,5 +48,8 @@ public class DaveKeyRatchet implements AutoCloseable {
         if (!isNull(keyRatchet)) {
             LibDaveKeyRatchetBinding.destroyKeyRatchet(this.keyRatchet);
         }
+        if (handle != null) {
+            handle.free();
+        }
     }
 }
@@ -2,20 +2,35 @@ package club.minnced.discord.jdave;
 
 import club.minnced.discord.jdave.ffi.LibDave;
 import club.minnced.discord.jdave.ffi.LibDaveSessionBinding;
+import club.minnced.discord.jdave.ffi.NativeUserRoster;
 import club.minnced.discord.jdave.ffi.NativeUtils;
+import club.minnced.discord.jdave.utils.NativeHandleType;
+import club.minnced.discord.jdave.utils.NativeHandles;
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
 public class DaveSessionImpl implements AutoCloseable {
     private final MemorySegment session;
+    private final NativeHandles.Handle handle;
+
+    // Key ratchet exports only read the current MLS state and may run concurrently, everything else is exclusive
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Bumped whenever the MLS group state may have changed, exported key ratchets are stable in between
+    private volatile long localEpoch;
+    // Set under the write lock once the native session is destroyed, every later call is a no-op
+    private boolean closed;
 
     private DaveSessionImpl(@NonNull MemorySegment session) {
         this.session = session;
+        this.handle = NativeHandles.track(this, NativeHandleType.SESSION);
     }
 
     @NonNull
@@ -29,89 +44,247 @@ public class DaveSessionImpl implements AutoCloseable {
     }
 
     private void destroy() {
-        LibDaveSessionBinding.destroySession(this.session);
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            LibDaveSessionBinding.destroySession(this.session);
+            handle.free();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void initialize(short version, long groupId, @NonNull String selfUserId) {
+        lock.writeLock().lock();
         try (Arena local = Arena.ofConfined()) {
+            if (closed) {
+                return;
+            }
+
+            localEpoch++;
             LibDaveSessionBinding.initializeSession(this.session, version, groupId, local.allocateFrom(selfUserId));
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     public void reset() {
-        LibDaveSessionBinding.resetSession(this.session);
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            localEpoch++;
+            LibDaveSessionBinding.resetSession(this.session);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void setProtocolVersion(short version) {
-        LibDaveSessionBinding.setProtocolVersion(this.session, version);
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            localEpoch++;
+            LibDaveSessionBinding.setProtocolVersion(this.session, version);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long getLocalEpoch() {
+        return localEpoch;
     }
 
     public short getProtocolVersion() {
-        return LibDaveSessionBinding.getProtocolVersion(this.session);
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return DaveConstants.DISABLED_PROTOCOL_VERSION;
+            }
+
+            return LibDaveSessionBinding.getProtocolVersion(this.session);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public MemorySegment getKeyRatchet(@NonNull String userId) {
         try (Arena local = Arena.ofConfined()) {
-            return LibDaveSessionBinding.getKeyRatchet(this.session, local.allocateFrom(userId));
+            return getKeyRatchet(local.allocateFrom(userId));
+        }
+    }
+
+    // Takes a null-terminated user id, which callers can allocate once and reuse for every export
+    public MemorySegment getKeyRatchet(@NonNull MemorySegment userId) {
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return MemorySegment.NULL;
+            }
+
+            return LibDaveSessionBinding.getKeyRatchet(this.session, userId);
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
     public void setExternalSender(@NonNull ByteBuffer externalSender) {
-        LibDaveSessionBinding.setExternalSender(this.session, externalSender);
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            LibDaveSessionBinding.setExternalSender(this.session, externalSender);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void processProposals(
             @NonNull ByteBuffer proposals,
             @NonNull List<String> userIds,
             @NonNull Consumer<@NonNull ByteBuffer> sendMLSCommitWelcome) {
-        MemorySegment welcome = LibDaveSessionBinding.processProposals(session, proposals, userIds);
+        try (NativeUserRoster roster = new NativeUserRoster(userIds)) {
+            processProposals(proposals, roster, sendMLSCommitWelcome);
+        }
+    }
+
+    public void processProposals(
+            @NonNull ByteBuffer proposals,
+            @NonNull NativeUserRoster userIds,
+            @NonNull Consumer<@NonNull ByteBuffer> sendMLSCommitWelcome) {
+        lock.writeLock().lock();
         try {
-            if (!NativeUtils.isNull(welcome)) {
-                sendMLSCommitWelcome.accept(welcome.asByteBuffer());
+            if (closed) {
+                return;
             }
-        } finally {
+
+            MemorySegment welcome = LibDaveSessionBinding.processProposals(
+                    session, proposals, userIds.getArray(), userIds.size());
             if (!NativeUtils.isNull(welcome)) {
-                LibDave.free(welcome);
+                NativeHandles.allocatedBuffer(welcome.byteSize());
             }
+            try {
+                if (!NativeUtils.isNull(welcome)) {
+                    sendMLSCommitWelcome.accept(welcome.asByteBuffer());
+                }
+            } finally {
+                if (!NativeUtils.isNull(welcome)) {
+                    LibDave.free(welcome);
+                    NativeHandles.freedBuffer(welcome.byteSize());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     // Returns whether we joined the group or not
     public boolean processWelcome(@NonNull ByteBuffer welcome, @NonNull List<@NonNull String> userIds) {
-        MemorySegment roster = LibDaveSessionBinding.processWelcome(session, welcome, userIds);
+        try (NativeUserRoster roster = new NativeUserRoster(userIds)) {
+            return processWelcome(welcome, roster);
+        }
+    }
+
+    // Returns whether we joined the group or not
+    public boolean processWelcome(@NonNull ByteBuffer welcome, @NonNull NativeUserRoster userIds) {
+        return processWelcomeRoster(welcome, userIds) != null;
+    }
+
+    // Returns the user ids of all members in the joined group, or null if we did not join
+    public long @Nullable [] processWelcomeRoster(@NonNull ByteBuffer welcome, @NonNull NativeUserRoster userIds) {
+        lock.writeLock().lock();
         try {
-            return !NativeUtils.isNull(roster);
-        } finally {
-            if (!NativeUtils.isNull(roster)) {
+            if (closed) {
+                return null;
+            }
+
+            localEpoch++;
+            MemorySegment roster =
+                    LibDaveSessionBinding.processWelcome(session, welcome, userIds.getArray(), userIds.size());
+            if (NativeUtils.isNull(roster)) {
+                return null;
+            }
+
+            NativeHandles.allocated(NativeHandleType.WELCOME_RESULT);
+            try {
+                return LibDaveSessionBinding.getWelcomeRosterMemberIds(roster);
+            } finally {
                 LibDaveSessionBinding.destroyWelcomeResult(roster);
+                NativeHandles.freed(NativeHandleType.WELCOME_RESULT);
             }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     @NonNull
     public CommitResult processCommit(@NonNull ByteBuffer commit) {
-        MemorySegment processedCommit = LibDaveSessionBinding.processCommit(session, commit);
+        lock.writeLock().lock();
         try {
-            boolean isIgnored = LibDaveSessionBinding.isCommitIgnored(processedCommit);
-            if (isIgnored) {
+            if (closed) {
                 return new CommitResult.Ignored();
-            } else {
-                return new CommitResult.Success(LibDaveSessionBinding.isCommitJoinedGroup(processedCommit));
+            }
+
+            localEpoch++;
+            MemorySegment processedCommit = LibDaveSessionBinding.processCommit(session, commit);
+            NativeHandles.allocated(NativeHandleType.COMMIT_RESULT);
+            try {
+                boolean isIgnored = LibDaveSessionBinding.isCommitIgnored(processedCommit);
+                if (isIgnored) {
+                    return new CommitResult.Ignored();
+                } else {
+                    return new CommitResult.Success(LibDaveSessionBinding.isCommitJoinedGroup(processedCommit));
+                }
+            } finally {
+                LibDaveSessionBinding.destroyCommitResult(processedCommit);
+                NativeHandles.freed(NativeHandleType.COMMIT_RESULT);
             }
         } finally {
-            LibDaveSessionBinding.destroyCommitResult(processedCommit);
+            lock.writeLock().unlock();
         }
     }
 
     public void sendMarshalledKeyPackage(@NonNull Consumer<@NonNull ByteBuffer> sendPackage) {
-        MemorySegment array = LibDaveSessionBinding.getMarshalledKeyPackage(session);
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            MemorySegment array = LibDaveSessionBinding.getMarshalledKeyPackage(session);
+            NativeHandles.allocatedBuffer(array.byteSize());
+            try {
+                sendPackage.accept(array.asByteBuffer());
+            } finally {
+                LibDave.free(array);
+                NativeHandles.freedBuffer(array.byteSize());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        lock.readLock().lock();
         try {
-            sendPackage.accept(array.asByteBuffer());
+            return closed;
         } finally {
-            LibDave.free(array);
+            lock.readLock().unlock();
         }
     }
 
+    // Waits for calls in progress, closing more than once is a no-op
     @Override
     public void close() {
         this.destroy();
@@ -4,6 +4,7 @@ import static club.minnced.discord.jdave.ffi.LibDave.*;
 import static club.minnced.discord.jdave.ffi.NativeUtils.toSizeT;
 import static java.lang.foreign.ValueLayout.*;
 
+import club.minnced.discord.jdave.utils.NativeHandles;
 import java.lang.foreign.*;
 import java.lang.invoke.MethodHandle;
 import java.nio.ByteBuffer;
@@ -28,6 +29,7 @@ public class LibDaveSessionBinding {
     static final MethodHandle daveCommitResultDestroy;
     static final MethodHandle daveSessionProcessWelcome;
     static final MethodHandle daveWelcomeResultDestroy;
+    static final MethodHandle daveWelcomeResultGetRosterMemberIds;
 
     static {
         try {
@@ -130,6 +132,13 @@ public class LibDaveSessionBinding {
             // void daveWelcomeResultDestroy(DAVEWelcomeResultHandle welcomeResultHandle);
             daveWelcomeResultDestroy = LINKER.downcallHandle(
                     SYMBOL_LOOKUP.find("daveWelcomeResultDestroy").orElseThrow(), FunctionDescriptor.ofVoid(ADDRESS));
+
+            // void daveWelcomeResultGetRosterMemberIds(
+            //   DAVEWelcomeResultHandle welcomeResultHandle, uint64_t** rosterIds, size_t* rosterIdsLength);
+            daveWelcomeResultGetRosterMemberIds = LINKER.downcallHandle(
+                    SYMBOL_LOOKUP.find("daveWelcomeResultGetRosterMemberIds").orElseThrow(),
+                    FunctionDescriptor.ofVoid(
+                            ADDRESS, ADDRESS.withTargetLayout(ADDRESS), ADDRESS.withTargetLayout(C_SIZE)));
         } catch (Throwable e) {
             throw new ExceptionInInitializerError(e);
         }
@@ -237,17 +246,29 @@ public class LibDaveSessionBinding {
             @NonNull MemorySegment session,
             @NonNull ByteBuffer proposals,
             @NonNull List<@NonNull String> recognizedUserIds) {
+        try (Arena local = Arena.ofConfined()) {
+            return processProposals(
+                    session, proposals, allocateStringArray(local, recognizedUserIds), recognizedUserIds.size());
+        }
+    }
+
+    // Returns Welcome package, recognizedUserIds is a char** of recognizedUserIdsLength entries
+    @NonNull
+    public static MemorySegment processProposals(
+            @NonNull MemorySegment session,
+            @NonNull ByteBuffer proposals,
+            @NonNull MemorySegment recognizedUserIds,
+            long recognizedUserIdsLength) {
         try (Arena local = Arena.ofConfined()) {
             MemorySegment welcomeSizePtr = local.allocate(C_SIZE);
             MemorySegment welcomeArrayPtr = local.allocate(ADDRESS.withTargetLayout(ADDRESS));
-            MemorySegment recognizedUserIdsArray = allocateStringArray(local, recognizedUserIds);
 
             daveSessionProcessProposals.invoke(
                     session,
                     MemorySegment.ofBuffer(proposals),
                     toSizeT(proposals.remaining()),
-                    recognizedUserIdsArray,
-                    toSizeT(recognizedUserIds.size()),
+                    recognizedUserIds,
+                    toSizeT(recognizedUserIdsLength),
                     welcomeArrayPtr,
                     welcomeSizePtr);
 
@@ -302,14 +323,25 @@ public class LibDaveSessionBinding {
             @NonNull ByteBuffer welcome,
             @NonNull List<@NonNull String> recognizedUserIds) {
         try (Arena local = Arena.ofConfined()) {
-            MemorySegment recognizedUserIdsArray = allocateStringArray(local, recognizedUserIds);
+            return processWelcome(
+                    session, welcome, allocateStringArray(local, recognizedUserIds), recognizedUserIds.size());
+        }
+    }
 
+    // Returns a "roster" of users / keys or null, recognizedUserIds is a char** of recognizedUserIdsLength entries
+    @NonNull
+    public static MemorySegment processWelcome(
+            @NonNull MemorySegment session,
+            @NonNull ByteBuffer welcome,
+            @NonNull MemorySegment recognizedUserIds,
+            long recognizedUserIdsLength) {
+        try {
             return (MemorySegment) daveSessionProcessWelcome.invoke(
                     session,
                     MemorySegment.ofBuffer(welcome),
                     toSizeT(welcome.remaining()),
-                    recognizedUserIdsArray,
-                    toSizeT(recognizedUserIds.size()));
+                    recognizedUserIds,
+                    toSizeT(recognizedUserIdsLength));
         } catch (Throwable e) {
             throw new LibDaveBindingException(e);
         }
@@ -323,6 +355,33 @@ public class LibDaveSessionBinding {
         }
     }
 
+    // Returns the user ids of all group members in the welcome roster
+    public static long @NonNull [] getWelcomeRosterMemberIds(@NonNull MemorySegment welcomeResult) {
+        try (Arena local = Arena.ofConfined()) {
+            MemorySegment sizePtr = local.allocate(C_SIZE);
+            MemorySegment arrayPtr = local.allocate(ADDRESS.withTargetLayout(ADDRESS));
+
+            daveWelcomeResultGetRosterMemberIds.invoke(welcomeResult, arrayPtr, sizePtr);
+
+            long size = readSize(sizePtr);
+            MemorySegment ids = arrayPtr.get(ADDRESS, 0);
+            if (NativeUtils.isNull(ids)) {
+                return new long[0];
+            }
+
+            long bytes = size * JAVA_LONG.byteSize();
+            NativeHandles.allocatedBuffer(bytes);
+            try {
+                return ids.reinterpret(bytes).toArray(JAVA_LONG);
+            } finally {
+                LibDave.free(ids);
+                NativeHandles.freedBuffer(bytes);
+            }
+        } catch (Throwable e) {
+            throw new LibDaveBindingException(e);
+        }
+    }
+
     @NonNull
     private static MemorySegment getByteArrayFromRawParts(
             @NonNull MemorySegment arrayPtr, @NonNull MemorySegment sizePtr) {
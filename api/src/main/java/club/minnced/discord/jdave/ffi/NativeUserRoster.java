@@ -0,0 +1,121 @@
+package club.minnced.discord.jdave.ffi;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jspecify.annotations.NonNull;
+
+// Off-heap char** of recognized user ids, maintained incrementally so MLS calls can pass it without re-encoding.
+// User ids are null-terminated decimal strings in fixed size slots, which are recycled when users leave.
+// Not thread-safe, callers have to synchronize mutations with native calls that read the array.
+public final class NativeUserRoster implements AutoCloseable {
+    // Unsigned 64-bit ids have at most 20 digits, plus the null terminator
+    static final long SLOT_SIZE = 24;
+    static final int SLOTS_PER_CHUNK = 64;
+
+    private final Arena arena = Arena.ofShared();
+    private final Map<Long, Integer> indices = new HashMap<>();
+    private final Deque<MemorySegment> freeSlots = new ArrayDeque<>();
+
+    private long[] userIds = new long[SLOTS_PER_CHUNK];
+    private MemorySegment array = arena.allocate(ADDRESS, SLOTS_PER_CHUNK);
+    private int size;
+
+    public NativeUserRoster() {}
+
+    public NativeUserRoster(long selfUserId) {
+        add(selfUserId);
+    }
+
+    public NativeUserRoster(@NonNull List<@NonNull String> userIds) {
+        userIds.forEach(userId -> add(Long.parseUnsignedLong(userId)));
+    }
+
+    public boolean add(long userId) {
+        if (indices.containsKey(userId)) {
+            return false;
+        }
+
+        if (size == userIds.length) {
+            grow();
+        }
+
+        MemorySegment slot = takeSlot();
+        byte[] encoded = Long.toUnsignedString(userId).getBytes(StandardCharsets.US_ASCII);
+        MemorySegment.copy(encoded, 0, slot, JAVA_BYTE, 0, encoded.length);
+        slot.set(JAVA_BYTE, encoded.length, (byte) 0);
+
+        array.setAtIndex(ADDRESS, size, slot);
+        userIds[size] = userId;
+        indices.put(userId, size);
+        size++;
+        return true;
+    }
+
+    public boolean remove(long userId) {
+        Integer index = indices.remove(userId);
+        if (index == null) {
+            return false;
+        }
+
+        freeSlots.push(array.getAtIndex(ADDRESS, index).reinterpret(SLOT_SIZE));
+
+        // Keep the array dense by moving the last entry into the gap, order is irrelevant to libdave
+        int last = --size;
+        if (index != last) {
+            array.setAtIndex(ADDRESS, index, array.getAtIndex(ADDRESS, last));
+            userIds[index] = userIds[last];
+            indices.put(userIds[index], index);
+        }
+        array.setAtIndex(ADDRESS, last, MemorySegment.NULL);
+        return true;
+    }
+
+    public boolean contains(long userId) {
+        return indices.containsKey(userId);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Pointer to the first of size() string pointers, only valid until the next mutation
+    @NonNull
+    public MemorySegment getArray() {
+        return array;
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    @NonNull
+    private MemorySegment takeSlot() {
+        if (freeSlots.isEmpty()) {
+            MemorySegment chunk = arena.allocate(SLOT_SIZE * SLOTS_PER_CHUNK, 8);
+            for (int i = SLOTS_PER_CHUNK - 1; i >= 0; i--) {
+                freeSlots.push(chunk.asSlice(i * SLOT_SIZE, SLOT_SIZE));
+            }
+        }
+
+        return freeSlots.pop();
+    }
+
+    private void grow() {
+        int capacity = userIds.length * 2;
+        MemorySegment grown = arena.allocate(ADDRESS, capacity);
+        MemorySegment.copy(array, 0, grown, 0, ADDRESS.byteSize() * size);
+        array = grown;
+        userIds = Arrays.copyOf(userIds, capacity);
+    }
+}
@@ -4,16 +4,34 @@ import club.minnced.discord.jdave.*;
 import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
 import club.minnced.discord.jdave.DaveEncryptor.DaveEncryptResultType;
 import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.DaveSessionOptions;
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 import net.dv8tion.jda.api.audio.dave.DaveProtocolCallbacks;
 import net.dv8tion.jda.api.audio.dave.DaveSession;
 import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class JDaveSession implements DaveSession {
+    private static final Logger log = LoggerFactory.getLogger(JDaveSession.class);
+
     private final DaveSessionManager manager;
+    private final boolean asyncControlPlane;
 
     public JDaveSession(long selfUserId, long channelId, @NonNull DaveProtocolCallbacks callbacks) {
-        this.manager = DaveSessionManager.create(selfUserId, channelId, new JDaveSessionManagerCallbacks(callbacks));
+        this(selfUserId, channelId, callbacks, DaveSessionOptions.defaults(), false);
+    }
+
+    public JDaveSession(
+            long selfUserId,
+            long channelId,
+            @NonNull DaveProtocolCallbacks callbacks,
+            @NonNull DaveSessionOptions options,
+            boolean asyncControlPlane) {
+        this.manager = DaveSessionManager.create(
+                selfUserId, channelId, new JDaveSessionManagerCallbacks(callbacks), options);
+        this.asyncControlPlane = asyncControlPlane;
     }
 
     @Override
@@ -77,12 +95,20 @@ public class JDaveSession implements DaveSession {
 
     @Override
     public void addUser(long userId) {
-        manager.addUser(userId);
+        if (asyncControlPlane) {
+            logFailure(manager.addUserAsync(userId));
+        } else {
+            manager.addUser(userId);
+        }
     }
 
     @Override
     public void removeUser(long userId) {
-        manager.removeUser(userId);
+        if (asyncControlPlane) {
+            logFailure(manager.removeUserAsync(userId));
+        } else {
+            manager.removeUser(userId);
+        }
     }
 
     @Override
@@ -90,47 +116,91 @@ public class JDaveSession implements DaveSession {
 
     @Override
     public void destroy() {
-        manager.close();
+        if (asyncControlPlane) {
+            logFailure(manager.closeAsync());
+        } else {
+            manager.close();
+        }
     }
 
     @Override
     public void onSelectProtocolAck(int protocolVersion) {
-        manager.onSelectProtocolAck(protocolVersion);
+        if (asyncControlPlane) {
+            logFailure(manager.onSelectProtocolAckAsync(protocolVersion));
+        } else {
+            manager.onSelectProtocolAck(protocolVersion);
+        }
     }
 
     @Override
     public void onDaveProtocolPrepareTransition(int transitionId, int protocolVersion) {
-        manager.onDaveProtocolPrepareTransition(transitionId, protocolVersion);
+        if (asyncControlPlane) {
+            logFailure(manager.onDaveProtocolPrepareTransitionAsync(transitionId, protocolVersion));
+        } else {
+            manager.onDaveProtocolPrepareTransition(transitionId, protocolVersion);
+        }
     }
 
     @Override
     public void onDaveProtocolExecuteTransition(int transitionId) {
-        manager.onDaveProtocolExecuteTransition(transitionId);
+        if (asyncControlPlane) {
+            logFailure(manager.onDaveProtocolExecuteTransitionAsync(transitionId));
+        } else {
+            manager.onDaveProtocolExecuteTransition(transitionId);
+        }
     }
 
     @Override
     public void onDaveProtocolPrepareEpoch(long epoch, int protocolVersion) {
-        manager.onDaveProtocolPrepareEpoch(epoch, protocolVersion);
+        if (asyncControlPlane) {
+            logFailure(manager.onDaveProtocolPrepareEpochAsync(epoch, protocolVersion));
+        } else {
+            manager.onDaveProtocolPrepareEpoch(epoch, protocolVersion);
+        }
     }
 
     @Override
     public void onDaveProtocolMLSExternalSenderPackage(@NonNull ByteBuffer externalSenderPackage) {
-        manager.onDaveProtocolMLSExternalSenderPackage(externalSenderPackage);
+        if (asyncControlPlane) {
+            logFailure(manager.onDaveProtocolMLSExternalSenderPackageAsync(externalSenderPackage));
+        } else {
+            manager.onDaveProtocolMLSExternalSenderPackage(externalSenderPackage);
+        }
     }
 
     @Override
     public void onMLSProposals(@NonNull ByteBuffer proposals) {
-        manager.onMLSProposals(proposals);
+        if (asyncControlPlane) {
+            logFailure(manager.onMLSProposalsAsync(proposals));
+        } else {
+            manager.onMLSProposals(proposals);
+        }
     }
 
     @Override
     public void onMLSPrepareCommitTransition(int transitionId, @NonNull ByteBuffer commit) {
-        manager.onMLSPrepareCommitTransition(transitionId, commit);
+        if (asyncControlPlane) {
+            logFailure(manager.onMLSPrepareCommitTransitionAsync(transitionId, commit));
+        } else {
+            manager.onMLSPrepareCommitTransition(transitionId, commit);
+        }
     }
 
     @Override
     public void onMLSWelcome(int transitionId, @NonNull ByteBuffer welcome) {
-        manager.onMLSWelcome(transitionId, welcome);
+        if (asyncControlPlane) {
+            logFailure(manager.onMLSWelcomeAsync(transitionId, welcome));
+        } else {
+            manager.onMLSWelcome(transitionId, welcome);
+        }
+    }
+
+    private void logFailure(@NonNull CompletableFuture<Void> future) {
+        future.whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.error("Failed to handle DAVE control plane event", error);
+            }
+        });
     }
 
     @NonNull
@@ -1,14 +1,83 @@
 package club.minnced.discord.jdave.interop;
 
+import club.minnced.discord.jdave.manager.DaveManagement;
+import club.minnced.discord.jdave.manager.DaveSessionMode;
+import club.minnced.discord.jdave.manager.DaveSessionOptions;
+import club.minnced.discord.jdave.manager.DaveSessionPool;
+import club.minnced.discord.jdave.manager.DaveSessionRegistry;
+import club.minnced.discord.jdave.manager.DaveWarmUp;
+import java.util.concurrent.CompletableFuture;
 import net.dv8tion.jda.api.audio.dave.DaveProtocolCallbacks;
 import net.dv8tion.jda.api.audio.dave.DaveSession;
 import net.dv8tion.jda.api.audio.dave.DaveSessionFactory;
 import org.jspecify.annotations.NonNull;
 
 public class JDaveSessionFactory implements DaveSessionFactory {
+    private final DaveSessionOptions options;
+    private final boolean asyncControlPlane;
+
+    public JDaveSessionFactory() {
+        this(DaveSessionOptions.defaults(), false);
+    }
+
+    private JDaveSessionFactory(@NonNull DaveSessionOptions options, boolean asyncControlPlane) {
+        this.options = options;
+        this.asyncControlPlane = asyncControlPlane;
+    }
+
+    @NonNull
+    public JDaveSessionFactory withOptions(@NonNull DaveSessionOptions options) {
+        return new JDaveSessionFactory(options, asyncControlPlane);
+    }
+
+    // Shortcut for the session mode of the options, e.g. SEND_ONLY for music bots that never receive audio
+    @NonNull
+    public JDaveSessionFactory withMode(@NonNull DaveSessionMode mode) {
+        return withOptions(options.withMode(mode));
+    }
+
+    // Takes native sessions for joins and migrations from the pool. The pool stays owned by the caller, who closes
+    // it once the factory is no longer used. Creating a session throws if the pool uses another auth session id.
+    @NonNull
+    public JDaveSessionFactory withSessionPool(@NonNull DaveSessionPool pool) {
+        return withOptions(options.withSessionPool(pool));
+    }
+
+    // Registers every session with a shared registry for global limits, sharded MLS executors and aggregated stats.
+    // Creating a session beyond the registry's session limit throws DaveAdmissionException.
+    @NonNull
+    public JDaveSessionFactory withRegistry(@NonNull DaveSessionRegistry registry) {
+        return withOptions(options.withRegistry(registry));
+    }
+
+    // Registers an MBean for each live session with the management, see DaveManagement. The management stays owned by
+    // the caller, who closes it to unregister its MBeans, and can be shared by several factories.
+    @NonNull
+    public JDaveSessionFactory withManagement(@NonNull DaveManagement management) {
+        return withOptions(options.withManagement(management));
+    }
+
+    // Moves MLS processing off the gateway thread onto the control plane executor of the options
+    @NonNull
+    public JDaveSessionFactory withAsyncControlPlane(boolean asyncControlPlane) {
+        return new JDaveSessionFactory(options, asyncControlPlane);
+    }
+
+    // Compiles the frame and transition paths on a background thread, call it once at startup before connecting.
+    // The future completes when the warm-up is done, connections made earlier only run with colder code.
+    @NonNull
+    public CompletableFuture<Void> warmUpAsync() {
+        return warmUpAsync(DaveWarmUp.DEFAULT_ITERATIONS);
+    }
+
+    @NonNull
+    public CompletableFuture<Void> warmUpAsync(int iterations) {
+        return DaveWarmUp.warmUpAsync(iterations);
+    }
+
     @NonNull
     @Override
     public DaveSession createDaveSession(@NonNull DaveProtocolCallbacks callbacks, long userId, long channelId) {
-        return new JDaveSession(userId, channelId, callbacks);
+        return new JDaveSession(userId, channelId, callbacks, options, asyncControlPlane);
     }
 }
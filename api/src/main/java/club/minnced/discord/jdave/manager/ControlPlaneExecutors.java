@@ -0,0 +1,124 @@
+package club.minnced.discord.jdave.manager;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class ControlPlaneExecutors {
+    private static final Logger log = LoggerFactory.getLogger(ControlPlaneExecutors.class);
+
+    public static final String POOL_SIZE_PROPERTY = "jdave.mls.threads";
+    public static final String KEY_RATCHET_POOL_SIZE_PROPERTY = "jdave.keyratchet.threads";
+
+    private ControlPlaneExecutors() {}
+
+    @NonNull
+    public static Executor getDefault() {
+        return DefaultHolder.EXECUTOR;
+    }
+
+    // Runs the parallel key ratchet exports of transitions. MLS threads block on these, sharing a pool with them
+    // could leave every thread waiting for exports queued behind the waiting tasks.
+    @NonNull
+    public static Executor getKeyRatchetDefault() {
+        return KeyRatchetHolder.EXECUTOR;
+    }
+
+    // Only times periodic housekeeping such as idle decryptor eviction, the work itself runs on the control plane
+    @NonNull
+    static ScheduledExecutorService getScheduler() {
+        return SchedulerHolder.SCHEDULER;
+    }
+
+    // Thread count is bounded, the queue is not. Dropping a single MLS message would desync the group.
+    @NonNull
+    public static ExecutorService newBoundedExecutor(@NonNull String name, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive, provided " + threads);
+        }
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), newThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @NonNull
+    static ThreadFactory newThreadFactory(@NonNull String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Gateway buffers may be reused once the event handler returns, so async work needs its own direct copy
+    @NonNull
+    static ByteBuffer copyDirect(@NonNull ByteBuffer buffer) {
+        ByteBuffer copy = ByteBuffer.allocateDirect(buffer.remaining());
+        copy.put(buffer.duplicate());
+        return copy.flip();
+    }
+
+    // Runs tasks one after another on a shared executor, a failed task does not stop the following ones
+    static final class SerialQueue {
+        private final Executor executor;
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        SerialQueue(@NonNull Executor executor) {
+            this.executor = executor;
+        }
+
+        // A task rejected by a shut down executor never runs, its future fails with the RejectedExecutionException
+        @NonNull
+        synchronized CompletableFuture<Void> submit(@NonNull Runnable task) {
+            CompletableFuture<Void> next = tail.exceptionally(ignored -> null).thenRunAsync(task, executor);
+            next.whenComplete((ignored, e) -> {
+                if (e != null && e.getCause() instanceof RejectedExecutionException) {
+                    log.warn("Control plane task was rejected, its executor is shut down");
+                }
+            });
+            tail = next;
+            return next;
+        }
+    }
+
+    private static final class DefaultHolder {
+        static final ExecutorService EXECUTOR = newBoundedExecutor(
+                "jdave-mls",
+                Integer.getInteger(
+                        POOL_SIZE_PROPERTY,
+                        Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2))));
+    }
+
+    private static final class SchedulerHolder {
+        static final ScheduledExecutorService SCHEDULER = newScheduler();
+
+        private static ScheduledExecutorService newScheduler() {
+            ScheduledThreadPoolExecutor scheduler =
+                    new ScheduledThreadPoolExecutor(1, newThreadFactory("jdave-scheduler"));
+            // Closed sessions cancel their tasks, which must not keep them reachable until the next due time
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+
+    private static final class KeyRatchetHolder {
+        static final ExecutorService EXECUTOR = newBoundedExecutor(
+                "jdave-key-ratchet",
+                Integer.getInteger(KEY_RATCHET_POOL_SIZE_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+}
@@ -0,0 +1,12 @@
+package club.minnced.discord.jdave.manager;
+
+import org.jspecify.annotations.NonNull;
+
+// Thrown when a DaveSessionRegistry refuses a new session because its session or native memory limit is reached
+public class DaveAdmissionException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DaveAdmissionException(@NonNull String message) {
+        super(message);
+    }
+}
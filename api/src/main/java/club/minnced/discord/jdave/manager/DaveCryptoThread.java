@@ -0,0 +1,332 @@
+package club.minnced.discord.jdave.manager;
+
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveEncryptor.DaveEncryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// A dedicated platform thread doing the media crypto for one or more session managers.
+// Callers hand frames over through a bounded lock-free queue and spin until the crypto thread has processed them,
+// so no thread is ever parked and woken up on the media path. If the queue is full, or the crypto thread is closed or
+// died from an error, the frame is processed on the calling thread instead.
+public final class DaveCryptoThread implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DaveCryptoThread.class);
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+    // Empty polls before SPIN_THEN_YIELD starts yielding
+    private static final int SPIN_LIMIT = 1 << 12;
+
+    private final Thread thread;
+    private final SpinWaitStrategy waitStrategy;
+    private final HandoffQueue queue;
+    // Every caller thread has at most one frame in flight, so the request object can be reused
+    private final ThreadLocal<Request> requests = ThreadLocal.withInitial(Request::new);
+    private final LongAdder handedOffFrames = new LongAdder();
+    private final LongAdder inlineFrames = new LongAdder();
+    private volatile boolean running = true;
+
+    private DaveCryptoThread(
+            @NonNull String name,
+            @NonNull SpinWaitStrategy waitStrategy,
+            int queueCapacity,
+            @Nullable Runnable onThreadStart) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive, provided " + queueCapacity);
+        }
+
+        this.waitStrategy = waitStrategy;
+        this.queue = new HandoffQueue(queueCapacity);
+        this.thread = new Thread(() -> run(onThreadStart), name);
+        this.thread.setDaemon(true);
+    }
+
+    @NonNull
+    public static DaveCryptoThread start(@NonNull String name) {
+        return start(name, SpinWaitStrategy.BUSY_SPIN, DEFAULT_QUEUE_CAPACITY, null);
+    }
+
+    // The onThreadStart hook runs on the crypto thread before it takes any frames.
+    // The JDK has no CPU affinity API, so this is the place to pin the thread, e.g. through an affinity library.
+    @NonNull
+    public static DaveCryptoThread start(
+            @NonNull String name,
+            @NonNull SpinWaitStrategy waitStrategy,
+            int queueCapacity,
+            @Nullable Runnable onThreadStart) {
+        DaveCryptoThread cryptoThread = new DaveCryptoThread(name, waitStrategy, queueCapacity, onThreadStart);
+        cryptoThread.thread.start();
+        return cryptoThread;
+    }
+
+    @NonNull
+    public String getName() {
+        return thread.getName();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getHandedOffFrames() {
+        return handedOffFrames.sum();
+    }
+
+    // Frames processed on the calling thread because the queue was full or the crypto thread was gone
+    public long getInlineFrames() {
+        return inlineFrames.sum();
+    }
+
+    @NonNull
+    public DaveEncryptResultType encrypt(
+            @NonNull DaveSessionManager manager,
+            @NonNull DaveMediaType type,
+            int ssrc,
+            @NonNull ByteBuffer audio,
+            @NonNull ByteBuffer encrypted) {
+        Request request = requests.get();
+        request.encrypt(manager, type, ssrc, audio, encrypted);
+        return handOff(request) >= 0 ? DaveEncryptResultType.SUCCESS : DaveEncryptResultType.FAILURE;
+    }
+
+    @NonNull
+    public DaveDecryptResultType decrypt(
+            @NonNull DaveSessionManager manager,
+            @NonNull DaveMediaType type,
+            long userId,
+            @NonNull ByteBuffer encrypted,
+            @NonNull ByteBuffer decrypted) {
+        Request request = requests.get();
+        request.decrypt(manager, type, userId, encrypted, decrypted);
+        return handOff(request) >= 0 ? DaveDecryptResultType.SUCCESS : DaveDecryptResultType.FAILURE;
+    }
+
+    // Stops the thread, frames still in the queue are processed before it exits
+    @Override
+    public void close() {
+        running = false;
+    }
+
+    private long handOff(@NonNull Request request) {
+        if (!running || Thread.currentThread() == thread || !queue.offer(request)) {
+            inlineFrames.increment();
+            request.execute();
+            return request.consume();
+        }
+
+        handedOffFrames.increment();
+        while (!request.isDone()) {
+            // Closed or killed by an error after the offer, nobody else is going to take the request anymore
+            if (!thread.isAlive()) {
+                if (!request.isDone()) {
+                    request.execute();
+                }
+                break;
+            }
+            Thread.onSpinWait();
+        }
+        return request.consume();
+    }
+
+    private void run(@Nullable Runnable onThreadStart) {
+        try {
+            process(onThreadStart);
+        } catch (Throwable e) {
+            // Later frames are processed inline, callers already spinning notice that the thread is gone
+            running = false;
+            log.error("Crypto thread {} failed", thread.getName(), e);
+            throw e;
+        }
+    }
+
+    private void process(@Nullable Runnable onThreadStart) {
+        if (onThreadStart != null) {
+            onThreadStart.run();
+        }
+
+        log.debug("Crypto thread {} started with {}", thread.getName(), waitStrategy);
+        int idle = 0;
+        while (running) {
+            Request request = queue.poll();
+            if (request != null) {
+                execute(request);
+                idle = 0;
+            } else if (waitStrategy == SpinWaitStrategy.SPIN_THEN_YIELD && ++idle > SPIN_LIMIT) {
+                Thread.yield();
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+
+        // Callers that got into the queue before close are still spinning on their result
+        Request request;
+        while ((request = queue.poll()) != null) {
+            execute(request);
+        }
+        log.debug("Crypto thread {} stopped", thread.getName());
+    }
+
+    private static void execute(@NonNull Request request) {
+        try {
+            request.execute();
+        } catch (RuntimeException e) {
+            log.error("Failed to process frame on crypto thread", e);
+            request.fail();
+        } catch (Throwable e) {
+            // Errors end the thread, the caller still gets its result
+            request.fail();
+            throw e;
+        }
+    }
+
+    private static final class Request {
+        private static final VarHandle DONE;
+
+        static {
+            try {
+                DONE = MethodHandles.lookup().findVarHandle(Request.class, "done", boolean.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private DaveSessionManager manager;
+        private DaveMediaType type;
+        private boolean encrypt;
+        private long id;
+        private ByteBuffer input;
+        private ByteBuffer output;
+        private long result;
+
+        @SuppressWarnings("unused")
+        private volatile boolean done;
+
+        void encrypt(DaveSessionManager manager, DaveMediaType type, int ssrc, ByteBuffer input, ByteBuffer output) {
+            set(manager, type, true, ssrc, input, output);
+        }
+
+        void decrypt(DaveSessionManager manager, DaveMediaType type, long userId, ByteBuffer input, ByteBuffer output) {
+            set(manager, type, false, userId, input, output);
+        }
+
+        // Plain writes, publishing the request through the queue makes them visible to the crypto thread
+        private void set(
+                DaveSessionManager manager,
+                DaveMediaType type,
+                boolean encrypt,
+                long id,
+                ByteBuffer input,
+                ByteBuffer output) {
+            this.manager = manager;
+            this.type = type;
+            this.encrypt = encrypt;
+            this.id = id;
+            this.input = input;
+            this.output = output;
+            DONE.setOpaque(this, false);
+        }
+
+        void execute() {
+            if (encrypt) {
+                result = manager.encrypt(type, (int) id, input, output) == DaveEncryptResultType.SUCCESS ? 0 : -1;
+            } else {
+                result = manager.decryptFrame(type, id, input, output);
+            }
+            DONE.setRelease(this, true);
+        }
+
+        void fail() {
+            result = -1;
+            DONE.setRelease(this, true);
+        }
+
+        boolean isDone() {
+            return (boolean) DONE.getAcquire(this);
+        }
+
+        // Drops the buffer references so an idle caller thread does not keep them alive
+        long consume() {
+            manager = null;
+            input = null;
+            output = null;
+            return result;
+        }
+    }
+
+    // Bounded multi-producer single-consumer array queue, producers claim a slot with a CAS on the enqueue position
+    // and publish it through the slot's sequence number
+    private static final class HandoffQueue {
+        private static final VarHandle ENQUEUE_POSITION;
+
+        static {
+            try {
+                ENQUEUE_POSITION =
+                        MethodHandles.lookup().findVarHandle(HandoffQueue.class, "enqueuePosition", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final int mask;
+        private final AtomicReferenceArray<Request> buffer;
+        private final AtomicLongArray sequences;
+
+        @SuppressWarnings("unused")
+        private volatile long enqueuePosition;
+        // Only touched by the crypto thread
+        private long dequeuePosition;
+
+        HandoffQueue(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+            this.mask = size - 1;
+            this.buffer = new AtomicReferenceArray<>(size);
+            this.sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.setPlain(i, i);
+            }
+        }
+
+        boolean offer(@NonNull Request request) {
+            long position = (long) ENQUEUE_POSITION.getVolatile(this);
+            while (true) {
+                int index = (int) position & mask;
+                long difference = sequences.getAcquire(index) - position;
+                if (difference == 0) {
+                    long witness = (long) ENQUEUE_POSITION.compareAndExchange(this, position, position + 1);
+                    if (witness == position) {
+                        buffer.setPlain(index, request);
+                        sequences.setRelease(index, position + 1);
+                        return true;
+                    }
+                    position = witness;
+                } else if (difference < 0) {
+                    return false;
+                } else {
+                    position = (long) ENQUEUE_POSITION.getVolatile(this);
+                }
+            }
+        }
+
+        @Nullable
+        Request poll() {
+            long position = dequeuePosition;
+            int index = (int) position & mask;
+            if (sequences.getAcquire(index) != position + 1) {
+                return null;
+            }
+
+            Request request = buffer.getPlain(index);
+            buffer.setPlain(index, null);
+            sequences.setRelease(index, position + mask + 1);
+            dequeuePosition = position + 1;
+            return request;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package club.minnced.discord.jdave.manager;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import org.jspecify.annotations.NonNull;
+
+// Flight recorder events of the control plane and the frame path, all under the JDAVE category of a recording.
+// Control plane events are rare and always recorded while enabled. Frame events only record calls above their
+// threshold, 1 ms by default, which can be lowered in the recording settings to sample the frame path.
+final class DaveEvents {
+    private DaveEvents() {}
+
+    @Name("jdave.MLSProposals")
+    @Label("MLS Proposals")
+    @Category({"JDAVE", "MLS"})
+    @StackTrace(false)
+    static final class ProposalsEvent extends Event {
+        @Label("Channel Id")
+        long channelId;
+
+        @Label("Roster Size")
+        int rosterSize;
+
+        @Label("Commit Sent")
+        @Description("Whether the proposals produced a commit and welcome to send")
+        boolean committed;
+    }
+
+    @Name("jdave.MLSCommit")
+    @Label("MLS Commit")
+    @Category({"JDAVE", "MLS"})
+    @StackTrace(false)
+    static final class CommitEvent extends Event {
+        @Label("Channel Id")
+        long channelId;
+
+        @Label("Transition Id")
+        int transitionId;
+
+        @Label("Roster Size")
+        int rosterSize;
+
+        @Label("Result")
+        @Description("IGNORED, JOINED or FAILED")
+        String result;
+    }
+
+    @Name("jdave.MLSWelcome")
+    @Label("MLS Welcome")
+    @Category({"JDAVE", "MLS"})
+    @StackTrace(false)
+    static final class WelcomeEvent extends Event {
+        @Label("Channel Id")
+        long channelId;
+
+        @Label("Transition Id")
+        int transitionId;
+
+        @Label("Roster Size")
+        int rosterSize;
+
+        @Label("Joined")
+        boolean joined;
+
+        @Label("Group Members")
+        int members;
+    }
+
+    @Name("jdave.PrepareTransition")
+    @Label("Prepare Transition")
+    @Category({"JDAVE", "Transition"})
+    @StackTrace(false)
+    static final class PrepareTransitionEvent extends Event {
+        @Label("Channel Id")
+        long channelId;
+
+        @Label("Transition Id")
+        int transitionId;
+
+        @Label("Protocol Version")
+        int protocolVersion;
+
+        @Label("Members")
+        @Description("Decryptors prepared for the transition")
+        int members;
+    }
+
+    @Name("jdave.ExecuteTransition")
+    @Label("Execute Transition")
+    @Category({"JDAVE", "Transition"})
+    @StackTrace(false)
+    static final class ExecuteTransitionEvent extends Event {
+        @Label("Channel Id")
+        long channelId;
+
+        @Label("Transition Id")
+        int transitionId;
+
+        @Label("Protocol Version")
+        int protocolVersion;
+
+        @Label("Members")
+        int members;
+    }
+
+    @Name("jdave.KeyRatchetExport")
+    @Label("Key Ratchet Export")
+    @Category({"JDAVE", "Transition"})
+    @StackTrace(false)
+    static final class KeyRatchetExportEvent extends Event {
+        @Label("Protocol Version")
+        int protocolVersion;
+
+        @Label("Attempted")
+        @Description("Handles considered, those already prepared for the epoch are skipped without an export")
+        int attempted;
+
+        @Label("Exported")
+        int exported;
+
+        @Label("Parallelism")
+        int parallelism;
+
+        @Label("Encryptor")
+        @Description("Whether this is the export of our own sender ratchet")
+        boolean encryptor;
+    }
+
+    @Name("jdave.FrameCrypto")
+    @Label("Frame Crypto")
+    @Category({"JDAVE", "Media"})
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class FrameEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("User Id")
+        long userId;
+
+        @Label("Success")
+        boolean success;
+
+        @Label("Passthrough")
+        boolean passthrough;
+
+        @Label("Size")
+        @DataAmount
+        long size;
+
+        // Only fills in the fields if the call is going to be recorded
+        void commitIfRecorded(
+                @NonNull String operation, long userId, boolean success, boolean passthrough, long size) {
+            if (shouldCommit()) {
+                this.operation = operation;
+                this.userId = userId;
+                this.success = success;
+                this.passthrough = passthrough;
+                this.size = size;
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package club.minnced.discord.jdave.manager;
+
+public interface DaveFactoryMXBean {
+    String getName();
+
+    int getActiveSessions();
+
+    long getCreatedSessions();
+
+    long getKnownUsers();
+
+    long getLiveDecryptors();
+
+    double getEncryptFailureRate();
+
+    double getDecryptFailureRate();
+
+    long getEstimatedNativeBytes();
+
+    long getProcessNativeBytes();
+
+    long getLeakedHandles();
+
+    String dumpState();
+}
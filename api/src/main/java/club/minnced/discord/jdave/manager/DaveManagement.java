@@ -0,0 +1,178 @@
+package club.minnced.discord.jdave.manager;
+
+import club.minnced.discord.jdave.utils.NativeHandles;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// JMX view of a session factory, registered on the platform MBean server as
+//   club.minnced.jdave:type=DaveSessionFactory,name=<name>
+// with one MBean per live session under the same name:
+//   club.minnced.jdave:type=DaveSession,factory=<name>,channel=<channel id>,id=<n>
+// Attributes are read from the lock-free session diagnostics, polling them does not touch the media path.
+public final class DaveManagement implements DaveFactoryMXBean, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DaveManagement.class);
+    public static final String DOMAIN = "club.minnced.jdave";
+
+    private final String name;
+    private final MBeanServer server;
+    private final ObjectName objectName;
+    private final Map<DaveSessionManager, ObjectName> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong createdSessions = new AtomicLong();
+
+    private DaveManagement(@NonNull String name, @NonNull MBeanServer server) throws JMException {
+        this.name = name;
+        this.server = server;
+        this.objectName = new ObjectName(DOMAIN + ":type=DaveSessionFactory,name=" + ObjectName.quote(name));
+        server.registerMBean(this, objectName);
+    }
+
+    // Names are unique per process, a name can only be used again once the management holding it is closed
+    @NonNull
+    public static DaveManagement create(@NonNull String name) {
+        try {
+            return new DaveManagement(name, ManagementFactory.getPlatformMBeanServer());
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register MBean for session factory " + name, e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    @Override
+    public long getCreatedSessions() {
+        return createdSessions.get();
+    }
+
+    @Override
+    public long getKnownUsers() {
+        long knownUsers = 0;
+        for (DaveSessionManager manager : sessions.keySet()) {
+            knownUsers += manager.getDiagnostics().knownUsers();
+        }
+        return knownUsers;
+    }
+
+    @Override
+    public long getLiveDecryptors() {
+        long liveDecryptors = 0;
+        for (DaveSessionManager manager : sessions.keySet()) {
+            liveDecryptors += manager.getDiagnostics().liveDecryptors();
+        }
+        return liveDecryptors;
+    }
+
+    @Override
+    public double getEncryptFailureRate() {
+        long frames = 0;
+        long failures = 0;
+        for (DaveSessionManager manager : sessions.keySet()) {
+            SessionDiagnostics diagnostics = manager.getDiagnostics();
+            frames += diagnostics.encryptFrames();
+            failures += diagnostics.encryptFailures();
+        }
+        return frames == 0 ? 0 : (double) failures / frames;
+    }
+
+    @Override
+    public double getDecryptFailureRate() {
+        long frames = 0;
+        long failures = 0;
+        for (DaveSessionManager manager : sessions.keySet()) {
+            SessionDiagnostics diagnostics = manager.getDiagnostics();
+            frames += diagnostics.decryptFrames();
+            failures += diagnostics.decryptFailures();
+        }
+        return frames == 0 ? 0 : (double) failures / frames;
+    }
+
+    @Override
+    public long getEstimatedNativeBytes() {
+        long bytes = 0;
+        for (DaveSessionManager manager : sessions.keySet()) {
+            bytes += manager.getDiagnostics().estimatedNativeBytes();
+        }
+        return bytes;
+    }
+
+    // Everything tracked by NativeHandles, including sessions of other factories and handles used without a manager
+    @Override
+    public long getProcessNativeBytes() {
+        return NativeHandles.getEstimatedBytes();
+    }
+
+    @Override
+    public long getLeakedHandles() {
+        return NativeHandles.snapshot().totalLeakedHandles();
+    }
+
+    @Override
+    public String dumpState() {
+        StringBuilder dump = new StringBuilder();
+        dump.append("Factory ")
+                .append(name)
+                .append(": ")
+                .append(sessions.size())
+                .append(" active sessions, ")
+                .append(createdSessions.get())
+                .append(" created\n");
+        for (DaveSessionManager manager : sessions.keySet()) {
+            dump.append('\n').append(manager.dumpState());
+        }
+        return dump.toString();
+    }
+
+    // Unregisters the factory and every session MBean, the sessions themselves keep running
+    @Override
+    public void close() {
+        sessions.values().forEach(this::unregisterQuietly);
+        sessions.clear();
+        unregisterQuietly(objectName);
+    }
+
+    void register(@NonNull DaveSessionManager manager) {
+        long id = createdSessions.incrementAndGet();
+        SessionDiagnostics diagnostics = manager.getDiagnostics();
+        try {
+            ObjectName sessionName = new ObjectName(DOMAIN + ":type=DaveSession,factory=" + ObjectName.quote(name)
+                    + ",channel=" + Long.toUnsignedString(diagnostics.channelId()) + ",id=" + id);
+            server.registerMBean(new DaveSessionBean(manager), sessionName);
+            sessions.put(manager, sessionName);
+        } catch (JMException e) {
+            // Monitoring is not worth failing a voice connection over
+            log.warn("Could not register MBean for session in channel {}", diagnostics.channelId(), e);
+        }
+    }
+
+    void unregister(@NonNull DaveSessionManager manager) {
+        ObjectName sessionName = sessions.remove(manager);
+        if (sessionName != null) {
+            unregisterQuietly(sessionName);
+        }
+    }
+
+    private void unregisterQuietly(@NonNull ObjectName objectName) {
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            log.debug("Could not unregister MBean {}", objectName, e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package club.minnced.discord.jdave.manager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+// Decrypts a tick worth of frames from many speakers in parallel.
+// Frames are split into lanes by user id, so frames of different users run concurrently while the frames of a single
+// user are always decrypted by the same lane in the order they were received.
+public final class DaveReceivePipeline implements AutoCloseable {
+    // Below this many frames per lane handing work to another thread costs more than the decrypt itself
+    static final int MIN_FRAMES_PER_LANE = 4;
+
+    private final DaveSessionManager manager;
+    private final Executor executor;
+    private final int parallelism;
+    // Only set if the pipeline created the executor and has to shut it down again
+    private final @Nullable ExecutorService ownedExecutor;
+
+    private DaveReceivePipeline(
+            @NonNull DaveSessionManager manager,
+            @NonNull Executor executor,
+            int parallelism,
+            @Nullable ExecutorService ownedExecutor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive, provided " + parallelism);
+        }
+
+        this.manager = manager;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.ownedExecutor = ownedExecutor;
+    }
+
+    // Uses a shared executor, which is not shut down by close()
+    @NonNull
+    public static DaveReceivePipeline create(
+            @NonNull DaveSessionManager manager, @NonNull Executor executor, int parallelism) {
+        return new DaveReceivePipeline(manager, executor, parallelism, null);
+    }
+
+    @NonNull
+    public static DaveReceivePipeline withForkJoinPool(@NonNull DaveSessionManager manager, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        return new DaveReceivePipeline(manager, pool, parallelism, pool);
+    }
+
+    // At most parallelism lanes are in flight per tick, which bounds how many carrier threads a tick occupies
+    @NonNull
+    public static DaveReceivePipeline withVirtualThreads(@NonNull DaveSessionManager manager, int parallelism) {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        return new DaveReceivePipeline(manager, executor, parallelism, executor);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // Blocks until every frame of the batch has been decrypted, results are stored in the batch
+    public void decrypt(@NonNull DecryptBatch batch) {
+        int size = batch.size();
+        int lanes = Math.min(parallelism, (size + MIN_FRAMES_PER_LANE - 1) / MIN_FRAMES_PER_LANE);
+        if (lanes <= 1) {
+            batch.assignLanes(1);
+            batch.decryptLane(manager, 0);
+            return;
+        }
+
+        batch.assignLanes(lanes);
+
+        // The calling thread takes the first lane itself instead of idling
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[lanes - 1];
+        for (int lane = 1; lane < lanes; lane++) {
+            int current = lane;
+            tasks[lane - 1] = CompletableFuture.runAsync(() -> batch.decryptLane(manager, current), executor);
+        }
+
+        batch.decryptLane(manager, 0);
+
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package club.minnced.discord.jdave.manager;
+
+import club.minnced.discord.jdave.DaveMediaType;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongConsumer;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+// Streaming receive mode, decrypted frames are pushed into a per-user ring and published to a Flow.Subscriber
+// instead of being returned to the receiving thread. A slow consumer can only ever lose frames, it never stalls
+// the socket thread.
+public final class DaveReceiveStreams implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 16;
+    // Covers the largest Opus packet with room to spare, video streams need a larger frame size
+    public static final int DEFAULT_MAX_FRAME_SIZE = 4096;
+
+    private final DaveSessionManager manager;
+    private final Executor deliveryExecutor;
+    private final int capacity;
+    private final int maxFrameSize;
+    private final FrameOverflowPolicy overflowPolicy;
+    private final Map<Long, UserFrameStream> streams = new ConcurrentHashMap<>();
+    private final LongConsumer userRemovalListener = this::removeStream;
+    private volatile boolean closed;
+
+    private DaveReceiveStreams(
+            @NonNull DaveSessionManager manager,
+            @NonNull Executor deliveryExecutor,
+            int capacity,
+            int maxFrameSize,
+            @NonNull FrameOverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, provided " + capacity);
+        }
+        if (maxFrameSize < 1) {
+            throw new IllegalArgumentException("Max frame size must be positive, provided " + maxFrameSize);
+        }
+
+        this.manager = manager;
+        this.deliveryExecutor = deliveryExecutor;
+        this.capacity = capacity;
+        this.maxFrameSize = maxFrameSize;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @NonNull
+    public static DaveReceiveStreams create(@NonNull DaveSessionManager manager) {
+        return create(
+                manager,
+                ForkJoinPool.commonPool(),
+                DEFAULT_CAPACITY,
+                DEFAULT_MAX_FRAME_SIZE,
+                FrameOverflowPolicy.DROP_OLDEST);
+    }
+
+    // Capacity is rounded up to the next power of two
+    @NonNull
+    public static DaveReceiveStreams create(
+            @NonNull DaveSessionManager manager,
+            @NonNull Executor deliveryExecutor,
+            int capacity,
+            int maxFrameSize,
+            @NonNull FrameOverflowPolicy overflowPolicy) {
+        DaveReceiveStreams streams =
+                new DaveReceiveStreams(manager, deliveryExecutor, capacity, maxFrameSize, overflowPolicy);
+        // Users leaving the session lose their stream, which completes its subscriber
+        manager.addUserRemovalListener(streams.userRemovalListener);
+        return streams;
+    }
+
+    // The stream is created on first use, so subscribers can attach before the user sends anything
+    @NonNull
+    public UserFrameStream getStream(long userId) {
+        UserFrameStream stream = openStream(userId);
+        if (stream == null) {
+            throw new IllegalStateException("Receive streams are closed");
+        }
+        return stream;
+    }
+
+    // Decrypts the frame into the user's ring, never blocks.
+    // Frames of one user must be received by one thread at a time, different users can be received concurrently.
+    // Frames of users that are not part of the session are dropped without allocating a ring for them.
+    @NonNull
+    public ReceiveResult receive(@NonNull DaveMediaType mediaType, long userId, @NonNull ByteBuffer encrypted) {
+        if (closed) {
+            return ReceiveResult.CLOSED;
+        }
+        if (!manager.isKnownUser(userId)) {
+            return ReceiveResult.UNKNOWN_USER;
+        }
+
+        UserFrameStream stream = openStream(userId);
+        if (stream == null) {
+            return ReceiveResult.CLOSED;
+        }
+        // Removed while the stream was opened, the removal listener may have run before the stream existed
+        if (!manager.isKnownUser(userId)) {
+            removeStream(userId);
+            return ReceiveResult.UNKNOWN_USER;
+        }
+        return stream.receive(manager, mediaType, encrypted);
+    }
+
+    // Completes the subscriber of the user's stream and frees its ring
+    public void removeStream(long userId) {
+        UserFrameStream stream = streams.remove(userId);
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        manager.removeUserRemovalListener(userRemovalListener);
+        streams.keySet().forEach(this::removeStream);
+    }
+
+    // Returns null once closed. A stream created concurrently with close is removed again by whichever side sees it
+    // last, removeStream makes sure it is only closed once.
+    @Nullable
+    private UserFrameStream openStream(long userId) {
+        if (closed) {
+            return null;
+        }
+
+        UserFrameStream stream = streams.computeIfAbsent(userId, id -> {
+            if (closed) {
+                return null;
+            }
+            return new UserFrameStream(id, capacity, maxFrameSize, overflowPolicy, deliveryExecutor);
+        });
+        if (stream != null && closed) {
+            removeStream(userId);
+            return null;
+        }
+        return stream;
+    }
+
+    public enum ReceiveResult {
+        SUCCESS,
+        // The frame was stored, but the oldest undelivered frame had to be dropped for it
+        DROPPED_OLDEST,
+        // The ring was full and the frame was not decrypted, the consumer is falling behind
+        REJECTED,
+        FAILURE,
+        // The user is not part of the session, the frame was dropped
+        UNKNOWN_USER,
+        CLOSED,
+    }
+}
@@ -0,0 +1,92 @@
+package club.minnced.discord.jdave.manager;
+
+import org.jspecify.annotations.NonNull;
+
+final class DaveSessionBean implements DaveSessionMXBean {
+    private final DaveSessionManager manager;
+
+    DaveSessionBean(@NonNull DaveSessionManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public String getChannelId() {
+        return Long.toUnsignedString(manager.getDiagnostics().channelId());
+    }
+
+    @Override
+    public String getSelfUserId() {
+        return Long.toUnsignedString(manager.getDiagnostics().selfUserId());
+    }
+
+    @Override
+    public String getMode() {
+        return manager.getMode().name();
+    }
+
+    @Override
+    public int getProtocolVersion() {
+        return manager.getDiagnostics().protocolVersion();
+    }
+
+    @Override
+    public boolean isPassthrough() {
+        return manager.getDiagnostics().passthrough();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return manager.getDiagnostics().closed();
+    }
+
+    @Override
+    public int getPendingTransitions() {
+        return manager.getDiagnostics().pendingTransitions();
+    }
+
+    @Override
+    public int getKnownUsers() {
+        return manager.getDiagnostics().knownUsers();
+    }
+
+    @Override
+    public int getLiveDecryptors() {
+        return manager.getDiagnostics().liveDecryptors();
+    }
+
+    @Override
+    public long getEncryptFrames() {
+        return manager.getDiagnostics().encryptFrames();
+    }
+
+    @Override
+    public double getEncryptFailureRate() {
+        return manager.getDiagnostics().encryptFailureRate();
+    }
+
+    @Override
+    public long getDecryptFrames() {
+        return manager.getDiagnostics().decryptFrames();
+    }
+
+    @Override
+    public double getDecryptFailureRate() {
+        return manager.getDiagnostics().decryptFailureRate();
+    }
+
+    @Override
+    public long getEstimatedNativeBytes() {
+        return manager.getDiagnostics().estimatedNativeBytes();
+    }
+
+    // Queued behind pending control plane work, so it cannot interleave with an MLS message being processed
+    @Override
+    public void resendKeyPackage() {
+        manager.resendKeyPackageAsync().join();
+    }
+
+    @Override
+    public String dumpState() {
+        return manager.dumpState();
+    }
+}
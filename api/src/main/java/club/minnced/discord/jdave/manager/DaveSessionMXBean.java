@@ -0,0 +1,35 @@
+package club.minnced.discord.jdave.manager;
+
+public interface DaveSessionMXBean {
+    String getChannelId();
+
+    String getSelfUserId();
+
+    String getMode();
+
+    int getProtocolVersion();
+
+    boolean isPassthrough();
+
+    boolean isClosed();
+
+    int getPendingTransitions();
+
+    int getKnownUsers();
+
+    int getLiveDecryptors();
+
+    long getEncryptFrames();
+
+    double getEncryptFailureRate();
+
+    long getDecryptFrames();
+
+    double getDecryptFailureRate();
+
+    long getEstimatedNativeBytes();
+
+    void resendKeyPackage();
+
+    String dumpState();
+}
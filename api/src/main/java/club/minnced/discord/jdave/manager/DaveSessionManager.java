@@ -7,11 +7,22 @@ import club.minnced.discord.jdave.*;
 import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
 import club.minnced.discord.jdave.DaveEncryptor.DaveEncryptResultType;
 import club.minnced.discord.jdave.ffi.LibDave;
+import club.minnced.discord.jdave.ffi.NativeUserRoster;
+import club.minnced.discord.jdave.utils.NativeHandleType;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.LongStream;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
@@ -19,38 +30,86 @@ import org.slf4j.LoggerFactory;
 
 public class DaveSessionManager implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(DaveSessionManager.class);
+    private static final long ESTIMATED_ROSTER_ENTRY_BYTES = 32;
 
     private final long selfUserId;
     private final long channelId;
 
     private final DaveSessionManagerCallbacks callbacks;
     private final DaveSessionImpl session;
+    private final DaveSessionMode mode;
+    // Null in receive-only mode
     private final DaveEncryptor encryptor;
-    private final Map<Long, DaveDecryptor> decryptors = new ConcurrentHashMap<>();
     private final Map<Integer, Integer> preparedTransitions = new ConcurrentHashMap<>();
+    private final ControlPlaneExecutors.SerialQueue controlPlane;
+    private final int keyRatchetParallelism;
+    private final Executor keyRatchetExecutor;
+    private final TransitionCounters transitionCounters = new TransitionCounters();
 
-    private int currentProtocolVersion = DISABLED_PROTOCOL_VERSION;
+    // Lazy decryptors are only created after the first frame of a known user, idle ones are evicted again
+    private final boolean lazyDecryptors;
+    private final long decryptorIdleTimeoutNanos;
+    private final Set<Long> knownUsers = ConcurrentHashMap.newKeySet();
+    // Users with a decryptor creation queued on the control plane, so a burst of frames only queues it once
+    private final Set<Long> pendingDecryptors = ConcurrentHashMap.newKeySet();
+    // Notified after a user was removed, e.g. by receive streams to free the user's ring
+    private final List<LongConsumer> userRemovalListeners = new CopyOnWriteArrayList<>();
+    private final LongAdder materializedDecryptors = new LongAdder();
+    private final LongAdder evictedDecryptors = new LongAdder();
+    // Periodic eviction of idle decryptors, null without an idle timeout, guarded by stateLock
+    private @Nullable ScheduledFuture<?> evictionTask;
+    // Shared limits and counters across sessions, null if this session is standalone
+    private final @Nullable DaveSessionRegistry registry;
+    // Null if metrics are disabled, which keeps the frame path free of any recording
+    private final @Nullable SessionMetrics metrics;
+    private final @Nullable DaveManagement management;
 
-    private DaveSessionManager(long selfUserId, long channelId, @NonNull DaveSessionManagerCallbacks callbacks) {
-        this(selfUserId, channelId, callbacks, DaveSessionImpl.create(null));
-    }
+    // Guards all writers of the media state, readers only do a single volatile load
+    private final Object stateLock = new Object();
+    private volatile MediaState state;
+    // Written under stateLock, volatile for the diagnostics
+    private volatile boolean closed;
+    // Key package computed ahead of SELECT_PROTOCOL_ACK, only valid while the session epoch is unchanged
+    private @Nullable ByteBuffer precomputedKeyPackage;
+    private int precomputedProtocolVersion;
+    private long precomputedEpoch;
+    private boolean keyPackageSent;
+    // Recognized user ids for MLS processing, guarded by stateLock
+    private final NativeUserRoster roster;
 
     private DaveSessionManager(
             long selfUserId,
             long channelId,
             @NonNull DaveSessionManagerCallbacks callbacks,
-            @NonNull DaveSessionImpl session) {
+            @NonNull DaveSessionOptions options) {
         this.selfUserId = selfUserId;
         this.channelId = channelId;
         this.callbacks = callbacks;
-        this.session = session;
-        this.encryptor = DaveEncryptor.create(session, selfUserId);
+        this.session = options.getSessionPool() != null
+                ? options.getSessionPool().acquire()
+                : DaveSessionImpl.create(options.getAuthSessionId());
+        this.mode = options.getMode();
+        this.encryptor = mode.isSending() ? DaveEncryptor.create(session, selfUserId) : null;
+        this.registry = options.getRegistry();
+        this.controlPlane = new ControlPlaneExecutors.SerialQueue(
+                registry != null ? registry.getExecutor(channelId) : options.getControlPlaneExecutor());
+        this.keyRatchetParallelism = options.getKeyRatchetParallelism();
+        this.keyRatchetExecutor = options.getKeyRatchetExecutor();
+        // Send-only sessions still track members for MLS, they just never materialize a decryptor
+        this.lazyDecryptors = options.isLazyDecryptors() || !mode.isReceiving();
+        this.decryptorIdleTimeoutNanos = options.getDecryptorIdleTimeout() != null
+                ? options.getDecryptorIdleTimeout().toNanos()
+                : 0;
+        this.metrics = options.isMetricsEnabled() ? new SessionMetrics() : null;
+        this.management = options.getManagement();
+        this.state = MediaState.initial(encryptor);
+        this.roster = new NativeUserRoster(selfUserId);
     }
 
     @NonNull
     public static DaveSessionManager create(
             long selfUserId, long channelId, @NonNull DaveSessionManagerCallbacks callbacks) {
-        return new DaveSessionManager(selfUserId, channelId, callbacks);
+        return create(selfUserId, channelId, callbacks, DaveSessionOptions.defaults());
     }
 
     @NonNull
@@ -59,15 +118,209 @@ public class DaveSessionManager implements AutoCloseable {
             long channelId,
             @NonNull DaveSessionManagerCallbacks callbacks,
             @Nullable String authSessionId) {
-        return new DaveSessionManager(selfUserId, channelId, callbacks, DaveSessionImpl.create(authSessionId));
+        return create(selfUserId, channelId, callbacks, DaveSessionOptions.defaults().withAuthSessionId(authSessionId));
+    }
+
+    @NonNull
+    public static DaveSessionManager create(
+            long selfUserId,
+            long channelId,
+            @NonNull DaveSessionManagerCallbacks callbacks,
+            @NonNull DaveSessionMode mode) {
+        return create(selfUserId, channelId, callbacks, DaveSessionOptions.defaults().withMode(mode));
     }
 
+    @NonNull
+    public static DaveSessionManager create(
+            long selfUserId,
+            long channelId,
+            @NonNull DaveSessionManagerCallbacks callbacks,
+            @NonNull DaveSessionOptions options) {
+        // Pooled sessions are created up front, a pool for another auth session would silently authenticate as it
+        DaveSessionPool pool = options.getSessionPool();
+        if (pool != null && !Objects.equals(pool.getAuthSessionId(), options.getAuthSessionId())) {
+            throw new IllegalArgumentException("Session pool was created for a different auth session id");
+        }
+
+        DaveSessionRegistry registry = options.getRegistry();
+        DaveSessionManager manager;
+        if (registry != null) {
+            registry.admit();
+            try {
+                manager = new DaveSessionManager(selfUserId, channelId, callbacks, options);
+            } catch (RuntimeException e) {
+                registry.cancelAdmission();
+                throw e;
+            }
+            registry.register(manager);
+        } else {
+            manager = new DaveSessionManager(selfUserId, channelId, callbacks, options);
+        }
+
+        if (manager.management != null) {
+            manager.management.register(manager);
+        }
+        manager.scheduleEviction();
+
+        if (options.getSessionPool() != null) {
+            // Usually done long before the gateway acknowledges the protocol, which then only has to send it
+            manager.controlPlane.submit(() -> manager.precomputeKeyPackage(LibDave.getMaxSupportedProtocolVersion()));
+        }
+        return manager;
+    }
+
+    // Media threads may still be inside encrypt or decrypt, the native handles are only destroyed once they are done
     @Override
     public void close() {
-        encryptor.close();
-        decryptors.values().forEach(DaveDecryptor::close);
-        decryptors.clear();
-        session.close();
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            if (evictionTask != null) {
+                evictionTask.cancel(false);
+            }
+            MediaState current = state;
+            state = current.closed();
+            if (encryptor != null) {
+                encryptor.close();
+            }
+            current.decryptors().forEach((userId, decryptor) -> closeDecryptor(decryptor));
+            session.close();
+            roster.close();
+        }
+
+        if (registry != null) {
+            registry.unregister(this);
+        }
+        if (management != null) {
+            management.unregister(this);
+        }
+    }
+
+    @NonNull
+    public DaveSessionMode getMode() {
+        return mode;
+    }
+
+    @NonNull
+    public TransitionStats getTransitionStats() {
+        return transitionCounters.snapshot();
+    }
+
+    @NonNull
+    public DecryptorStats getDecryptorStats() {
+        return new DecryptorStats(
+                knownUsers.size(),
+                state.decryptors().size(),
+                materializedDecryptors.sum(),
+                evictedDecryptors.sum());
+    }
+
+    // Empty frame stats if metrics are disabled for this session
+    @NonNull
+    public MetricsSnapshot getMetrics() {
+        TransitionStats transitions = transitionCounters.snapshot();
+        if (metrics == null) {
+            return new MetricsSnapshot(FrameStats.empty(), FrameStats.empty(), Map.of(), transitions);
+        }
+        return metrics.snapshot(transitions);
+    }
+
+    @NonNull
+    public SessionDiagnostics getDiagnostics() {
+        MediaState current = state;
+        SessionMetrics metrics = this.metrics;
+        boolean closed = this.closed;
+        int users = knownUsers.size();
+        int liveDecryptors = current.decryptors().size();
+
+        return new SessionDiagnostics(
+                channelId,
+                selfUserId,
+                mode,
+                current.protocolVersion(),
+                current.passthrough(),
+                closed,
+                preparedTransitions.size(),
+                users,
+                liveDecryptors,
+                metrics != null ? metrics.encryptCounters().frames() : 0,
+                metrics != null ? metrics.encryptCounters().failedFrames() : 0,
+                metrics != null ? metrics.decryptCounters().frames() : 0,
+                metrics != null ? metrics.decryptCounters().failedFrames() : 0,
+                closed ? 0 : estimateNativeBytes(users, liveDecryptors));
+    }
+
+    // Human readable state for support, includes every live decryptor
+    @NonNull
+    public String dumpState() {
+        SessionDiagnostics diagnostics = getDiagnostics();
+        MediaState current = state;
+        long now = System.nanoTime();
+
+        StringBuilder dump = new StringBuilder();
+        dump.append("Session channel=")
+                .append(Long.toUnsignedString(channelId))
+                .append(" user=")
+                .append(Long.toUnsignedString(selfUserId))
+                .append(" mode=")
+                .append(mode)
+                .append(closed ? " (closed)" : "")
+                .append('\n');
+        dump.append("  protocolVersion=")
+                .append(diagnostics.protocolVersion())
+                .append(" passthrough=")
+                .append(diagnostics.passthrough())
+                .append(" epoch=")
+                .append(session.getLocalEpoch())
+                .append(" preparedTransitions=")
+                .append(Map.copyOf(preparedTransitions))
+                .append('\n');
+        dump.append("  knownUsers=")
+                .append(diagnostics.knownUsers())
+                .append(" liveDecryptors=")
+                .append(diagnostics.liveDecryptors())
+                .append(" estimatedNativeBytes=")
+                .append(diagnostics.estimatedNativeBytes())
+                .append('\n');
+        dump.append("  encrypt frames=")
+                .append(diagnostics.encryptFrames())
+                .append(" failed=")
+                .append(diagnostics.encryptFailures())
+                .append(" decrypt frames=")
+                .append(diagnostics.decryptFrames())
+                .append(" failed=")
+                .append(diagnostics.decryptFailures())
+                .append('\n');
+        dump.append("  transitions ").append(transitionCounters.snapshot()).append('\n');
+        current.decryptors().forEach((userId, decryptor) -> dump.append("  decryptor user=")
+                .append(Long.toUnsignedString(userId))
+                .append(" idleMillis=")
+                .append((now - decryptor.getLastUsedNanos()) / 1_000_000)
+                .append('\n'));
+        return dump.toString();
+    }
+
+    // Sends a fresh key package of the current epoch, e.g. when the voice gateway seems to have missed the last one
+    @NonNull
+    public CompletableFuture<Void> resendKeyPackageAsync() {
+        return controlPlane.submit(() -> {
+            ByteBuffer[] keyPackage = new ByteBuffer[1];
+            synchronized (stateLock) {
+                if (closed) {
+                    return;
+                }
+                session.sendMarshalledKeyPackage(
+                        marshalled -> keyPackage[0] = ControlPlaneExecutors.copyDirect(marshalled));
+            }
+
+            if (keyPackage[0] != null) {
+                log.debug("Resending key package");
+                callbacks.sendMLSKeyPackage(keyPackage[0]);
+            }
+        });
     }
 
     public int getMaxProtocolVersion() {
@@ -75,15 +328,21 @@ public class DaveSessionManager implements AutoCloseable {
     }
 
     public void assignSsrcToCodec(@NonNull DaveCodec codec, int ssrc) {
-        encryptor.assignSsrcToCodec(codec, ssrc);
+        if (encryptor != null) {
+            encryptor.assignSsrcToCodec(codec, ssrc);
+        }
     }
 
     public int getMaxEncryptedFrameSize(@NonNull DaveMediaType type, int frameSize) {
+        if (encryptor == null) {
+            return frameSize;
+        }
+
         return (int) encryptor.getMaxCiphertextByteSize(type, frameSize);
     }
 
     public int getMaxDecryptedFrameSize(@NonNull DaveMediaType type, long userId, int frameSize) {
-        DaveDecryptor decryptor = this.decryptors.get(userId);
+        DaveDecryptor decryptor = state.decryptors().get(userId);
         if (decryptor == null) {
             return frameSize;
         }
@@ -94,35 +353,167 @@ public class DaveSessionManager implements AutoCloseable {
     @NonNull
     public DaveEncryptResultType encrypt(
             @NonNull DaveMediaType type, int ssrc, @NonNull ByteBuffer audio, @NonNull ByteBuffer encrypted) {
+        MediaState current = state;
+        DaveEncryptor encryptor = current.encryptor();
+        SessionMetrics metrics = this.metrics;
+        if (encryptor == null) {
+            if (metrics != null) {
+                metrics.recordEncryptUnavailable();
+            }
+            return DaveEncryptResultType.FAILURE;
+        }
+
+        int inputBytes = audio.remaining();
+        DaveEvents.FrameEvent event = new DaveEvents.FrameEvent();
+        event.begin();
+        long start = metrics != null ? System.nanoTime() : 0;
+
         DaveEncryptor.DaveEncryptorResult result = encryptor.encrypt(type, ssrc, audio, encrypted);
+        boolean success = result.type() == DaveEncryptResultType.SUCCESS;
+        if (metrics != null) {
+            long nanos = System.nanoTime() - start;
+            metrics.recordEncrypt(result.resultCode(), current.passthrough(), inputBytes, result.bytesWritten(), nanos);
+        }
+        event.commitIfRecorded("encrypt", selfUserId, success, current.passthrough(), inputBytes);
         return result.type();
     }
 
     @NonNull
     public DaveDecryptResultType decrypt(
             @NonNull DaveMediaType type, long userId, @NonNull ByteBuffer encrypted, @NonNull ByteBuffer decrypted) {
-        DaveDecryptor decryptor = decryptors.get(userId);
+        return decryptFrame(type, userId, encrypted, decrypted) >= 0
+                ? DaveDecryptResultType.SUCCESS
+                : DaveDecryptResultType.FAILURE;
+    }
 
-        if (decryptor != null) {
-            return decryptor.decrypt(type, encrypted, decrypted).type();
-        } else {
-            return DaveDecryptResultType.FAILURE;
+    // Returns the number of bytes written, or -1 if the frame could not be decrypted
+    long decryptFrame(
+            @NonNull DaveMediaType type, long userId, @NonNull ByteBuffer encrypted, @NonNull ByteBuffer decrypted) {
+        MediaState current = state;
+        DaveDecryptor decryptor = current.decryptors().get(userId);
+        if (decryptor == null
+                && isOnDemand()
+                && knownUsers.contains(userId)
+                && (registry == null || registry.hasDecryptorBudget())) {
+            scheduleMaterialization(userId);
+        }
+
+        SessionMetrics metrics = this.metrics;
+        if (decryptor == null) {
+            if (metrics != null) {
+                metrics.recordDecryptUnavailable(userId);
+            }
+            return -1;
         }
+
+        int inputBytes = encrypted.remaining();
+        DaveEvents.FrameEvent event = new DaveEvents.FrameEvent();
+        event.begin();
+        long start = metrics != null ? System.nanoTime() : 0;
+
+        DaveDecryptor.DaveDecryptResult result = decryptor.decrypt(type, encrypted, decrypted);
+        boolean success = result.type() == DaveDecryptResultType.SUCCESS;
+        if (metrics != null) {
+            long nanos = System.nanoTime() - start;
+            metrics.recordDecrypt(
+                    userId, result.resultCode(), current.passthrough(), inputBytes, result.bytesWritten(), nanos);
+        }
+        event.commitIfRecorded("decrypt", userId, success, current.passthrough(), inputBytes);
+        return success ? result.bytesWritten() : -1;
     }
 
-    @SuppressWarnings("resource")
     public void addUser(long userId) {
         log.debug("Adding user {}", userId);
-        DaveDecryptor decryptor = decryptors.computeIfAbsent(userId, id -> DaveDecryptor.create(id, session));
-        decryptor.prepareTransition(currentProtocolVersion);
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
+
+            knownUsers.add(userId);
+            roster.add(userId);
+
+            MediaState current = state;
+            DaveDecryptor decryptor = current.decryptors().get(userId);
+            if (decryptor == null) {
+                if (lazyDecryptors) {
+                    return;
+                }
+
+                decryptor = createDecryptor(userId);
+                if (decryptor == null) {
+                    return;
+                }
+                state = current.withDecryptor(userId, decryptor);
+            }
+
+            int exported = DecryptorTransitions.prepare(decryptor, current.protocolVersion()) ? 1 : 0;
+            transitionCounters.recordPrepare(1, exported, current.protocolVersion());
+        }
+    }
+
+    // Adds many users at once, deriving their key ratchets in parallel and publishing them in a single swap
+    public void addUsers(long @NonNull [] userIds) {
+        log.debug("Adding {} users", userIds.length);
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
+
+            MediaState current = state;
+            PersistentLongMap<DaveDecryptor> decryptors = current.decryptors();
+            List<DaveDecryptor> updated = new ArrayList<>(userIds.length);
+
+            for (long userId : userIds) {
+                knownUsers.add(userId);
+                roster.add(userId);
+
+                DaveDecryptor decryptor = decryptors.get(userId);
+                if (decryptor == null) {
+                    if (lazyDecryptors) {
+                        continue;
+                    }
+
+                    decryptor = createDecryptor(userId);
+                    if (decryptor == null) {
+                        continue;
+                    }
+                    decryptors = decryptors.with(userId, decryptor);
+                }
+                updated.add(decryptor);
+            }
+
+            int exported = DecryptorTransitions.prepare(
+                    updated, current.protocolVersion(), keyRatchetParallelism, keyRatchetExecutor);
+            transitionCounters.recordPrepare(updated.size(), exported, current.protocolVersion());
+            state = current.withDecryptors(decryptors);
+        }
     }
 
     public void removeUser(long userId) {
         log.debug("Removing user {}", userId);
-        DaveDecryptor decryptor = decryptors.remove(userId);
-        if (decryptor != null) {
-            decryptor.close();
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
+
+            knownUsers.remove(userId);
+            if (metrics != null) {
+                metrics.removeUser(userId);
+            }
+
+            MediaState current = state;
+            DaveDecryptor decryptor = current.decryptors().get(userId);
+            if (decryptor != null) {
+                state = current.withoutDecryptor(userId);
+                closeDecryptor(decryptor);
+            }
+
+            if (userId != selfUserId) {
+                roster.remove(userId);
+            }
         }
+
+        userRemovalListeners.forEach(listener -> listener.accept(userId));
     }
 
     public void onSelectProtocolAck(int protocolVersion) {
@@ -151,17 +542,66 @@ public class DaveSessionManager implements AutoCloseable {
 
     public void onDaveProtocolMLSExternalSenderPackage(@NonNull ByteBuffer externalSenderPackage) {
         log.debug("Handling external sender package");
-        session.setExternalSender(externalSenderPackage);
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
+
+            session.setExternalSender(externalSenderPackage);
+        }
     }
 
     public void onMLSProposals(@NonNull ByteBuffer proposals) {
         log.debug("Handling MLS proposals");
-        session.processProposals(proposals, getRecognizedUserIds(), callbacks::sendMLSCommitWelcome);
+        DaveEvents.ProposalsEvent event = new DaveEvents.ProposalsEvent();
+        event.begin();
+        ByteBuffer[] commitWelcome = new ByteBuffer[1];
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
+
+            event.rosterSize = roster.size();
+            session.processProposals(
+                    proposals,
+                    roster,
+                    marshalled -> commitWelcome[0] = ControlPlaneExecutors.copyDirect(marshalled));
+        }
+
+        // Sent without holding any lock, so a slow network callback does not hold up key ratchet exports
+        if (commitWelcome[0] != null) {
+            event.committed = true;
+            callbacks.sendMLSCommitWelcome(commitWelcome[0]);
+        }
+        event.channelId = channelId;
+        event.commit();
     }
 
     public void onMLSPrepareCommitTransition(int transitionId, @NonNull ByteBuffer commit) {
         log.debug("Handling MLS prepare commit transition transitionId={}", transitionId);
-        DaveSessionImpl.CommitResult result = session.processCommit(commit);
+        DaveEvents.CommitEvent event = new DaveEvents.CommitEvent();
+        event.begin();
+        DaveSessionImpl.CommitResult result;
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
+
+            result = session.processCommit(commit);
+        }
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.channelId = channelId;
+            event.transitionId = transitionId;
+            event.rosterSize = getRosterSize();
+            event.result = switch (result) {
+                case DaveSessionImpl.CommitResult.Ignored ignored -> "IGNORED";
+                case DaveSessionImpl.CommitResult.Success success -> success.joined() ? "JOINED" : "FAILED";
+            };
+            event.commit();
+        }
+
         switch (result) {
             case DaveSessionImpl.CommitResult.Ignored ignored -> {
                 preparedTransitions.remove(transitionId);
@@ -179,9 +619,28 @@ public class DaveSessionManager implements AutoCloseable {
 
     public void onMLSWelcome(int transitionId, @NonNull ByteBuffer welcome) {
         log.debug("Handling MLS welcome transition transitionId={}", transitionId);
-        boolean joinedGroup = session.processWelcome(welcome, getRecognizedUserIds());
+        long[] members;
+        DaveEvents.WelcomeEvent event = new DaveEvents.WelcomeEvent();
+        event.begin();
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
 
-        if (joinedGroup) {
+            event.rosterSize = roster.size();
+            members = session.processWelcomeRoster(welcome, roster);
+            if (members != null) {
+                // Provision every existing member at once, the transition below derives all their ratchets in one pass
+                provisionDecryptors(members);
+            }
+        }
+        event.channelId = channelId;
+        event.transitionId = transitionId;
+        event.joined = members != null;
+        event.members = members != null ? members.length : 0;
+        event.commit();
+
+        if (members != null) {
             prepareProtocolTransition(transitionId, session.getProtocolVersion());
         } else {
             sendInvalidCommitWelcome(transitionId);
@@ -189,12 +648,252 @@ public class DaveSessionManager implements AutoCloseable {
         }
     }
 
+    // Async variants run on the control plane executor, one task at a time and in submission order.
+    // Once any of these are used, all gateway events of this session should go through them to keep protocol order.
+
+    @NonNull
+    public CompletableFuture<Void> addUserAsync(long userId) {
+        return controlPlane.submit(() -> addUser(userId));
+    }
+
+    @NonNull
+    public CompletableFuture<Void> addUsersAsync(long @NonNull [] userIds) {
+        long[] copy = userIds.clone();
+        return controlPlane.submit(() -> addUsers(copy));
+    }
+
     @NonNull
-    private List<@NonNull String> getRecognizedUserIds() {
-        return LongStream.concat(
-                        LongStream.of(selfUserId), decryptors.keySet().stream().mapToLong(id -> id))
-                .mapToObj(Long::toUnsignedString)
-                .toList();
+    public CompletableFuture<Void> removeUserAsync(long userId) {
+        return controlPlane.submit(() -> removeUser(userId));
+    }
+
+    @NonNull
+    public CompletableFuture<Void> onSelectProtocolAckAsync(int protocolVersion) {
+        return controlPlane.submit(() -> onSelectProtocolAck(protocolVersion));
+    }
+
+    @NonNull
+    public CompletableFuture<Void> onDaveProtocolPrepareTransitionAsync(int transitionId, int protocolVersion) {
+        return controlPlane.submit(() -> onDaveProtocolPrepareTransition(transitionId, protocolVersion));
+    }
+
+    @NonNull
+    public CompletableFuture<Void> onDaveProtocolExecuteTransitionAsync(int transitionId) {
+        return controlPlane.submit(() -> onDaveProtocolExecuteTransition(transitionId));
+    }
+
+    @NonNull
+    public CompletableFuture<Void> onDaveProtocolPrepareEpochAsync(long epoch, int protocolVersion) {
+        return controlPlane.submit(() -> onDaveProtocolPrepareEpoch(epoch, protocolVersion));
+    }
+
+    @NonNull
+    public CompletableFuture<Void> onDaveProtocolMLSExternalSenderPackageAsync(
+            @NonNull ByteBuffer externalSenderPackage) {
+        ByteBuffer copy = ControlPlaneExecutors.copyDirect(externalSenderPackage);
+        return controlPlane.submit(() -> onDaveProtocolMLSExternalSenderPackage(copy));
+    }
+
+    @NonNull
+    public CompletableFuture<Void> onMLSProposalsAsync(@NonNull ByteBuffer proposals) {
+        ByteBuffer copy = ControlPlaneExecutors.copyDirect(proposals);
+        return controlPlane.submit(() -> onMLSProposals(copy));
+    }
+
+    @NonNull
+    public CompletableFuture<Void> onMLSPrepareCommitTransitionAsync(int transitionId, @NonNull ByteBuffer commit) {
+        ByteBuffer copy = ControlPlaneExecutors.copyDirect(commit);
+        return controlPlane.submit(() -> onMLSPrepareCommitTransition(transitionId, copy));
+    }
+
+    @NonNull
+    public CompletableFuture<Void> onMLSWelcomeAsync(int transitionId, @NonNull ByteBuffer welcome) {
+        ByteBuffer copy = ControlPlaneExecutors.copyDirect(welcome);
+        return controlPlane.submit(() -> onMLSWelcome(transitionId, copy));
+    }
+
+    // Closes the session after all previously submitted control plane work has finished
+    @NonNull
+    public CompletableFuture<Void> closeAsync() {
+        return controlPlane.submit(this::close);
+    }
+
+    boolean isKnownUser(long userId) {
+        return knownUsers.contains(userId);
+    }
+
+    void addUserRemovalListener(@NonNull LongConsumer listener) {
+        userRemovalListeners.add(listener);
+    }
+
+    void removeUserRemovalListener(@NonNull LongConsumer listener) {
+        userRemovalListeners.remove(listener);
+    }
+
+    // Same per-handle estimates as the process wide NativeHandles footprint, plus the off-heap roster slots
+    private long estimateNativeBytes(int users, int liveDecryptors) {
+        long bytes = NativeHandleType.SESSION.getEstimatedBytes()
+                + liveDecryptors * NativeHandleType.DECRYPTOR.getEstimatedBytes();
+        if (encryptor != null) {
+            bytes += NativeHandleType.ENCRYPTOR.getEstimatedBytes();
+        }
+        return bytes + (long) users * ESTIMATED_ROSTER_ENTRY_BYTES;
+    }
+
+    private int getRosterSize() {
+        synchronized (stateLock) {
+            return roster.size();
+        }
+    }
+
+    // Users without a decryptor get one shortly after their first frame, with a registry this also covers users
+    // skipped while the decryptor budget was exhausted, even if decryptors are otherwise eager
+    private boolean isOnDemand() {
+        return mode.isReceiving() && (lazyDecryptors || decryptorIdleTimeoutNanos > 0 || registry != null);
+    }
+
+    // Returns null if the registry has no decryptor budget left
+    @Nullable
+    private DaveDecryptor createDecryptor(long userId) {
+        if (registry != null && !registry.tryReserveDecryptor()) {
+            log.debug("Decryptor budget exhausted, not creating decryptor for user {}", userId);
+            return null;
+        }
+
+        try {
+            return DaveDecryptor.create(userId, session);
+        } catch (RuntimeException e) {
+            if (registry != null) {
+                registry.releaseDecryptor();
+            }
+            throw e;
+        }
+    }
+
+    private void closeDecryptor(@NonNull DaveDecryptor decryptor) {
+        decryptor.close();
+        if (registry != null) {
+            registry.releaseDecryptor();
+        }
+    }
+
+    // Called from the media path on a frame of a known user without a decryptor. The frame itself is dropped, the
+    // media thread never waits for stateLock, which MLS processing and transitions hold for their whole duration.
+    private void scheduleMaterialization(long userId) {
+        if (!pendingDecryptors.add(userId)) {
+            return;
+        }
+
+        // Also cleared if the task is rejected and never runs, otherwise the user would never get a decryptor
+        controlPlane
+                .submit(() -> materializeDecryptor(userId))
+                .whenComplete((ignored, e) -> pendingDecryptors.remove(userId));
+    }
+
+    private void materializeDecryptor(long userId) {
+        synchronized (stateLock) {
+            MediaState current = state;
+            if (current.decryptors().containsKey(userId) || closed || !knownUsers.contains(userId)) {
+                return;
+            }
+
+            log.debug("Materializing decryptor for user {}", userId);
+            DaveDecryptor decryptor = createDecryptor(userId);
+            if (decryptor == null) {
+                return;
+            }
+
+            int exported = DecryptorTransitions.prepare(decryptor, current.protocolVersion()) ? 1 : 0;
+            transitionCounters.recordPrepare(1, exported, current.protocolVersion());
+            state = current.withDecryptor(userId, decryptor);
+            materializedDecryptors.increment();
+        }
+    }
+
+    // Checks for idle decryptors twice per timeout, so none outlives it by more than half of it even in silent channels
+    private void scheduleEviction() {
+        if (decryptorIdleTimeoutNanos <= 0) {
+            return;
+        }
+
+        long period = Math.max(1, decryptorIdleTimeoutNanos / 2);
+        synchronized (stateLock) {
+            if (!closed) {
+                evictionTask = ControlPlaneExecutors.getScheduler()
+                        .scheduleWithFixedDelay(
+                                () -> controlPlane.submit(this::evictIdleDecryptors),
+                                period,
+                                period,
+                                TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    // Destroys decryptors that have been idle for longer than the configured timeout, returns how many were evicted.
+    // Evicted users stay known and get a new decryptor after their next frame.
+    public int evictIdleDecryptors() {
+        if (decryptorIdleTimeoutNanos <= 0) {
+            return 0;
+        }
+
+        synchronized (stateLock) {
+            if (closed) {
+                return 0;
+            }
+
+            MediaState current = state;
+            long now = System.nanoTime();
+            List<Long> idleUsers = new ArrayList<>();
+            List<DaveDecryptor> evicted = new ArrayList<>();
+            current.decryptors().forEach((userId, decryptor) -> {
+                if (now - decryptor.getLastUsedNanos() > decryptorIdleTimeoutNanos) {
+                    idleUsers.add(userId);
+                    evicted.add(decryptor);
+                }
+            });
+
+            if (evicted.isEmpty()) {
+                return 0;
+            }
+
+            PersistentLongMap<DaveDecryptor> remaining = current.decryptors();
+            for (long userId : idleUsers) {
+                remaining = remaining.without(userId);
+            }
+            state = current.withDecryptors(remaining);
+            evicted.forEach(this::closeDecryptor);
+            evictedDecryptors.add(evicted.size());
+            log.debug("Evicted {} idle decryptors", evicted.size());
+            return evicted.size();
+        }
+    }
+
+    // Creates missing decryptors without preparing them, callers have to prepare a transition afterwards
+    private void provisionDecryptors(long @NonNull [] userIds) {
+        MediaState current = state;
+        PersistentLongMap<DaveDecryptor> decryptors = current.decryptors();
+        int created = 0;
+
+        for (long userId : userIds) {
+            if (userId == selfUserId) {
+                continue;
+            }
+
+            knownUsers.add(userId);
+            roster.add(userId);
+            if (!lazyDecryptors && !decryptors.containsKey(userId)) {
+                DaveDecryptor decryptor = createDecryptor(userId);
+                if (decryptor != null) {
+                    decryptors = decryptors.with(userId, decryptor);
+                    created++;
+                }
+            }
+        }
+
+        if (created > 0) {
+            log.debug("Provisioned {} decryptors from welcome roster", created);
+            state = current.withDecryptors(decryptors);
+        }
     }
 
     private void handleDaveProtocolInit(int protocolVersion) {
@@ -212,29 +911,109 @@ public class DaveSessionManager implements AutoCloseable {
             return;
         }
 
-        session.initialize((short) protocolVersion, channelId, Long.toUnsignedString(selfUserId));
-        session.sendMarshalledKeyPackage(callbacks::sendMLSKeyPackage);
+        ByteBuffer keyPackage;
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
+
+            keyPackageSent = true;
+            keyPackage = precomputedKeyPackage;
+            precomputedKeyPackage = null;
+            if (keyPackage == null
+                    || precomputedProtocolVersion != protocolVersion
+                    || precomputedEpoch != session.getLocalEpoch()) {
+                keyPackage = null;
+                session.initialize((short) protocolVersion, channelId, Long.toUnsignedString(selfUserId));
+            }
+        }
+
+        if (keyPackage != null) {
+            log.debug("Sending precomputed key package for protocol version {}", protocolVersion);
+            callbacks.sendMLSKeyPackage(keyPackage);
+        } else {
+            session.sendMarshalledKeyPackage(callbacks::sendMLSKeyPackage);
+        }
+    }
+
+    // Initializes the session for this channel ahead of time and keeps a copy of the marshalled key package
+    private void precomputeKeyPackage(int protocolVersion) {
+        synchronized (stateLock) {
+            if (closed || keyPackageSent) {
+                return;
+            }
+
+            session.initialize((short) protocolVersion, channelId, Long.toUnsignedString(selfUserId));
+            session.sendMarshalledKeyPackage(
+                    keyPackage -> precomputedKeyPackage = ControlPlaneExecutors.copyDirect(keyPackage));
+            precomputedProtocolVersion = protocolVersion;
+            precomputedEpoch = session.getLocalEpoch();
+        }
     }
 
     private void prepareProtocolTransition(int transitionId, int protocolVersion) {
         log.debug("Preparing to transition to protocol version={} (Transition ID {})", protocolVersion, transitionId);
-        decryptors.forEach((userId, decryptor) -> {
-            if (userId == selfUserId) {
+        DaveEvents.PrepareTransitionEvent event = new DaveEvents.PrepareTransitionEvent();
+        event.begin();
+        synchronized (stateLock) {
+            if (closed) {
                 return;
             }
 
-            decryptor.prepareTransition(protocolVersion);
-        });
+            // Idle decryptors are dropped first, so the transition only derives ratchets for active speakers
+            evictIdleDecryptors();
 
-        if (transitionId == DaveConstants.INIT_TRANSITION_ID) {
-            encryptor.processTransition(protocolVersion);
-        } else {
-            preparedTransitions.put(transitionId, protocolVersion);
-            currentProtocolVersion = protocolVersion;
+            MediaState current = state;
+            List<DaveDecryptor> decryptors = new ArrayList<>(current.decryptors().size());
+            current.decryptors().forEach((userId, decryptor) -> {
+                if (userId != selfUserId) {
+                    decryptors.add(decryptor);
+                }
+            });
+
+            int exported = DecryptorTransitions.prepare(
+                    decryptors, protocolVersion, keyRatchetParallelism, keyRatchetExecutor);
+            transitionCounters.recordPrepare(decryptors.size(), exported, protocolVersion);
+            event.members = decryptors.size();
+
+            if (transitionId == DaveConstants.INIT_TRANSITION_ID) {
+                if (encryptor != null) {
+                    encryptor.processTransition(protocolVersion);
+                }
+                state = current.withPassthrough(protocolVersion == DISABLED_PROTOCOL_VERSION);
+            } else {
+                // Stage our own ratchet now, so executing the transition is just a swap
+                if (encryptor != null && protocolVersion != DISABLED_PROTOCOL_VERSION) {
+                    prepareEncryptor(encryptor, protocolVersion);
+                }
+                preparedTransitions.put(transitionId, protocolVersion);
+                state = current.withProtocolVersion(protocolVersion);
+            }
+        }
+        event.channelId = channelId;
+        event.transitionId = transitionId;
+        event.protocolVersion = protocolVersion;
+        event.commit();
+
+        if (transitionId != DaveConstants.INIT_TRANSITION_ID) {
             callbacks.sendDaveProtocolReadyForTransition(transitionId);
         }
     }
 
+    private void prepareEncryptor(@NonNull DaveEncryptor encryptor, int protocolVersion) {
+        DaveEvents.KeyRatchetExportEvent event = new DaveEvents.KeyRatchetExportEvent();
+        event.begin();
+        boolean exported = encryptor.prepareTransition(protocolVersion);
+        transitionCounters.recordExport(exported);
+
+        event.protocolVersion = protocolVersion;
+        event.attempted = 1;
+        event.exported = exported ? 1 : 0;
+        event.parallelism = 1;
+        event.encryptor = true;
+        event.commit();
+    }
+
     private void executeProtocolTransition(int transitionId) {
         Integer protocolVersion = preparedTransitions.remove(transitionId);
         if (protocolVersion == null) {
@@ -244,15 +1023,79 @@ public class DaveSessionManager implements AutoCloseable {
 
         log.debug("Executing transition to protocol version {} (Transition ID {})", protocolVersion, transitionId);
 
-        if (protocolVersion == DaveConstants.DISABLED_PROTOCOL_VERSION) {
-            session.reset();
-        }
+        DaveEvents.ExecuteTransitionEvent event = new DaveEvents.ExecuteTransitionEvent();
+        event.begin();
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
 
-        encryptor.processTransition(protocolVersion);
+            long start = System.nanoTime();
+            if (protocolVersion == DaveConstants.DISABLED_PROTOCOL_VERSION) {
+                session.reset();
+            }
+
+            if (encryptor != null && encryptor.processTransition(protocolVersion)) {
+                transitionCounters.recordExport(true);
+            }
+            state = state.withPassthrough(protocolVersion == DISABLED_PROTOCOL_VERSION);
+            transitionCounters.recordExecute(System.nanoTime() - start);
+            event.members = state.decryptors().size();
+        }
+        event.channelId = channelId;
+        event.transitionId = transitionId;
+        event.protocolVersion = protocolVersion;
+        event.commit();
     }
 
     private void sendInvalidCommitWelcome(int transitionId) {
+        if (closed) {
+            return;
+        }
+
         callbacks.sendMLSInvalidCommitWelcome(transitionId);
         session.sendMarshalledKeyPackage(callbacks::sendMLSKeyPackage);
     }
+
+    // Immutable view of everything the media threads need, swapped atomically on every change
+    private record MediaState(
+            int protocolVersion,
+            boolean passthrough,
+            @Nullable DaveEncryptor encryptor,
+            @NonNull PersistentLongMap<DaveDecryptor> decryptors) {
+        @NonNull
+        static MediaState initial(@Nullable DaveEncryptor encryptor) {
+            return new MediaState(DISABLED_PROTOCOL_VERSION, true, encryptor, PersistentLongMap.empty());
+        }
+
+        @NonNull
+        MediaState closed() {
+            return new MediaState(protocolVersion, true, null, PersistentLongMap.empty());
+        }
+
+        @NonNull
+        MediaState withProtocolVersion(int protocolVersion) {
+            return new MediaState(protocolVersion, passthrough, encryptor, decryptors);
+        }
+
+        @NonNull
+        MediaState withPassthrough(boolean passthrough) {
+            return new MediaState(protocolVersion, passthrough, encryptor, decryptors);
+        }
+
+        @NonNull
+        MediaState withDecryptors(@NonNull PersistentLongMap<DaveDecryptor> decryptors) {
+            return new MediaState(protocolVersion, passthrough, encryptor, decryptors);
+        }
+
+        @NonNull
+        MediaState withDecryptor(long userId, @NonNull DaveDecryptor decryptor) {
+            return withDecryptors(decryptors.with(userId, decryptor));
+        }
+
+        @NonNull
+        MediaState withoutDecryptor(long userId) {
+            return withDecryptors(decryptors.without(userId));
+        }
+    }
 }
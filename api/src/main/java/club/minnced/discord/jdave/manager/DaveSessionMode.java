@@ -0,0 +1,26 @@
+package club.minnced.discord.jdave.manager;
+
+// Which half of the media path a session needs. MLS participation is the same in every mode,
+// only the unused encryptor or decryptors (and their key ratchet exports) are skipped.
+public enum DaveSessionMode {
+    SEND_AND_RECEIVE(true, true),
+    SEND_ONLY(true, false),
+    RECEIVE_ONLY(false, true),
+    ;
+
+    private final boolean sending;
+    private final boolean receiving;
+
+    DaveSessionMode(boolean sending, boolean receiving) {
+        this.sending = sending;
+        this.receiving = receiving;
+    }
+
+    public boolean isSending() {
+        return sending;
+    }
+
+    public boolean isReceiving() {
+        return receiving;
+    }
+}
@@ -0,0 +1,306 @@
+package club.minnced.discord.jdave.manager;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+// Immutable, every with* method returns an updated copy
+public final class DaveSessionOptions {
+    private static final DaveSessionOptions DEFAULT = new DaveSessionOptions(
+            null, null, 1, null, false, null, DaveSessionMode.SEND_AND_RECEIVE, null, null, false, null);
+
+    private final @Nullable String authSessionId;
+    private final @Nullable Executor controlPlaneExecutor;
+    private final int keyRatchetParallelism;
+    private final @Nullable Executor keyRatchetExecutor;
+    private final boolean lazyDecryptors;
+    private final @Nullable Duration decryptorIdleTimeout;
+    private final DaveSessionMode mode;
+    private final @Nullable DaveSessionPool sessionPool;
+    private final @Nullable DaveSessionRegistry registry;
+    private final boolean metricsEnabled;
+    private final @Nullable DaveManagement management;
+
+    private DaveSessionOptions(
+            @Nullable String authSessionId,
+            @Nullable Executor controlPlaneExecutor,
+            int keyRatchetParallelism,
+            @Nullable Executor keyRatchetExecutor,
+            boolean lazyDecryptors,
+            @Nullable Duration decryptorIdleTimeout,
+            @NonNull DaveSessionMode mode,
+            @Nullable DaveSessionPool sessionPool,
+            @Nullable DaveSessionRegistry registry,
+            boolean metricsEnabled,
+            @Nullable DaveManagement management) {
+        this.authSessionId = authSessionId;
+        this.controlPlaneExecutor = controlPlaneExecutor;
+        this.keyRatchetParallelism = keyRatchetParallelism;
+        this.keyRatchetExecutor = keyRatchetExecutor;
+        this.lazyDecryptors = lazyDecryptors;
+        this.decryptorIdleTimeout = decryptorIdleTimeout;
+        this.mode = mode;
+        this.sessionPool = sessionPool;
+        this.registry = registry;
+        this.metricsEnabled = metricsEnabled;
+        this.management = management;
+    }
+
+    @NonNull
+    public static DaveSessionOptions defaults() {
+        return DEFAULT;
+    }
+
+    @Nullable
+    public String getAuthSessionId() {
+        return authSessionId;
+    }
+
+    // Executor used by the *Async control plane methods, defaults to the shared bounded MLS executor
+    @NonNull
+    public Executor getControlPlaneExecutor() {
+        return controlPlaneExecutor != null ? controlPlaneExecutor : ControlPlaneExecutors.getDefault();
+    }
+
+    public int getKeyRatchetParallelism() {
+        return keyRatchetParallelism;
+    }
+
+    // Executor running the parallel key ratchet exports, defaults to a shared pool separate from the MLS executor
+    @NonNull
+    public Executor getKeyRatchetExecutor() {
+        return keyRatchetExecutor != null ? keyRatchetExecutor : ControlPlaneExecutors.getKeyRatchetDefault();
+    }
+
+    public boolean isLazyDecryptors() {
+        return lazyDecryptors;
+    }
+
+    @Nullable
+    public Duration getDecryptorIdleTimeout() {
+        return decryptorIdleTimeout;
+    }
+
+    @NonNull
+    public DaveSessionMode getMode() {
+        return mode;
+    }
+
+    @Nullable
+    public DaveSessionPool getSessionPool() {
+        return sessionPool;
+    }
+
+    @Nullable
+    public DaveSessionRegistry getRegistry() {
+        return registry;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    @Nullable
+    public DaveManagement getManagement() {
+        return management;
+    }
+
+    @NonNull
+    public DaveSessionOptions withAuthSessionId(@Nullable String authSessionId) {
+        return new DaveSessionOptions(
+                authSessionId,
+                controlPlaneExecutor,
+                keyRatchetParallelism,
+                keyRatchetExecutor,
+                lazyDecryptors,
+                decryptorIdleTimeout,
+                mode,
+                sessionPool,
+                registry,
+                metricsEnabled,
+                management);
+    }
+
+    @NonNull
+    public DaveSessionOptions withControlPlaneExecutor(@Nullable Executor controlPlaneExecutor) {
+        return new DaveSessionOptions(
+                authSessionId,
+                controlPlaneExecutor,
+                keyRatchetParallelism,
+                keyRatchetExecutor,
+                lazyDecryptors,
+                decryptorIdleTimeout,
+                mode,
+                sessionPool,
+                registry,
+                metricsEnabled,
+                management);
+    }
+
+    // Number of threads deriving decryptor key ratchets during transitions and bulk joins, 1 keeps it serial.
+    // Exports run concurrently on the native session, which libdave allows since they only read the epoch secret.
+    @NonNull
+    public DaveSessionOptions withKeyRatchetParallelism(int keyRatchetParallelism) {
+        if (keyRatchetParallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive, provided " + keyRatchetParallelism);
+        }
+
+        return new DaveSessionOptions(
+                authSessionId,
+                controlPlaneExecutor,
+                keyRatchetParallelism,
+                keyRatchetExecutor,
+                lazyDecryptors,
+                decryptorIdleTimeout,
+                mode,
+                sessionPool,
+                registry,
+                metricsEnabled,
+                management);
+    }
+
+    // The control plane thread waits for these exports, so this must not be the control plane executor itself
+    @NonNull
+    public DaveSessionOptions withKeyRatchetExecutor(@Nullable Executor keyRatchetExecutor) {
+        return new DaveSessionOptions(
+                authSessionId,
+                controlPlaneExecutor,
+                keyRatchetParallelism,
+                keyRatchetExecutor,
+                lazyDecryptors,
+                decryptorIdleTimeout,
+                mode,
+                sessionPool,
+                registry,
+                metricsEnabled,
+                management);
+    }
+
+    // Only create decryptors once the first frame of a user arrives, instead of for every member on join.
+    // The decryptor is created on the control plane, frames arriving before it is ready are dropped.
+    @NonNull
+    public DaveSessionOptions withLazyDecryptors(boolean lazyDecryptors) {
+        return new DaveSessionOptions(
+                authSessionId,
+                controlPlaneExecutor,
+                keyRatchetParallelism,
+                keyRatchetExecutor,
+                lazyDecryptors,
+                decryptorIdleTimeout,
+                mode,
+                sessionPool,
+                registry,
+                metricsEnabled,
+                management);
+    }
+
+    // Destroy decryptors that did not decrypt a frame for this long, they are recreated like lazy ones.
+    // Null disables eviction.
+    @NonNull
+    public DaveSessionOptions withDecryptorIdleTimeout(@Nullable Duration decryptorIdleTimeout) {
+        if (decryptorIdleTimeout != null && (decryptorIdleTimeout.isNegative() || decryptorIdleTimeout.isZero())) {
+            throw new IllegalArgumentException("Idle timeout must be positive, provided " + decryptorIdleTimeout);
+        }
+
+        return new DaveSessionOptions(
+                authSessionId,
+                controlPlaneExecutor,
+                keyRatchetParallelism,
+                keyRatchetExecutor,
+                lazyDecryptors,
+                decryptorIdleTimeout,
+                mode,
+                sessionPool,
+                registry,
+                metricsEnabled,
+                management);
+    }
+
+    @NonNull
+    public DaveSessionOptions withMode(@NonNull DaveSessionMode mode) {
+        return new DaveSessionOptions(
+                authSessionId,
+                controlPlaneExecutor,
+                keyRatchetParallelism,
+                keyRatchetExecutor,
+                lazyDecryptors,
+                decryptorIdleTimeout,
+                mode,
+                sessionPool,
+                registry,
+                metricsEnabled,
+                management);
+    }
+
+    // Take native sessions from a pool created ahead of time and compute the key package before the protocol is
+    // selected. The pool has to be created with the same auth session id as these options.
+    @NonNull
+    public DaveSessionOptions withSessionPool(@Nullable DaveSessionPool sessionPool) {
+        return new DaveSessionOptions(
+                authSessionId,
+                controlPlaneExecutor,
+                keyRatchetParallelism,
+                keyRatchetExecutor,
+                lazyDecryptors,
+                decryptorIdleTimeout,
+                mode,
+                sessionPool,
+                registry,
+                metricsEnabled,
+                management);
+    }
+
+    // Register sessions with a shared registry, which enforces its global limits and runs the control plane
+    // on the registry's executor shard for the channel instead of the control plane executor of these options
+    @NonNull
+    public DaveSessionOptions withRegistry(@Nullable DaveSessionRegistry registry) {
+        return new DaveSessionOptions(
+                authSessionId,
+                controlPlaneExecutor,
+                keyRatchetParallelism,
+                keyRatchetExecutor,
+                lazyDecryptors,
+                decryptorIdleTimeout,
+                mode,
+                sessionPool,
+                registry,
+                metricsEnabled,
+                management);
+    }
+
+    // Frame counters and latency histograms of the session and each user, read with DaveSessionManager#getMetrics.
+    // Off by default, disabled sessions skip all recording, only the transition counters are always kept.
+    @NonNull
+    public DaveSessionOptions withMetricsEnabled(boolean metricsEnabled) {
+        return new DaveSessionOptions(
+                authSessionId,
+                controlPlaneExecutor,
+                keyRatchetParallelism,
+                keyRatchetExecutor,
+                lazyDecryptors,
+                decryptorIdleTimeout,
+                mode,
+                sessionPool,
+                registry,
+                metricsEnabled,
+                management);
+    }
+
+    // Registers an MBean for every session with the given management, unregistered again once the session closes
+    @NonNull
+    public DaveSessionOptions withManagement(@Nullable DaveManagement management) {
+        return new DaveSessionOptions(
+                authSessionId,
+                controlPlaneExecutor,
+                keyRatchetParallelism,
+                keyRatchetExecutor,
+                lazyDecryptors,
+                decryptorIdleTimeout,
+                mode,
+                sessionPool,
+                registry,
+                metricsEnabled,
+                management);
+    }
+}
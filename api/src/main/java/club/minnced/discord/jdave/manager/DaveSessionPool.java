@@ -0,0 +1,126 @@
+package club.minnced.discord.jdave.manager;
+
+import club.minnced.discord.jdave.DaveSessionImpl;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Native sessions created ahead of time, so voice joins and server migrations do not create them inline.
+// The pool is refilled in the background whenever a session is taken. Sessions are not initialized here, the group
+// is only known on join and initializing again would throw away the keys. A manager using the pool initializes its
+// session right away on the control plane and keeps the key package ready for SELECT_PROTOCOL_ACK instead.
+// The pool is owned by the caller, who closes it once no more sessions are created from it.
+public final class DaveSessionPool implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DaveSessionPool.class);
+    private final int size;
+    private final @Nullable String authSessionId;
+    private final Executor refillExecutor;
+    private final Queue<DaveSessionImpl> sessions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile boolean closed;
+
+    private DaveSessionPool(int size, @Nullable String authSessionId, @NonNull Executor refillExecutor) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be positive, provided " + size);
+        }
+
+        this.size = size;
+        this.authSessionId = authSessionId;
+        this.refillExecutor = refillExecutor;
+    }
+
+    @NonNull
+    public static DaveSessionPool create(int size, @Nullable String authSessionId) {
+        return create(size, authSessionId, ControlPlaneExecutors.getDefault());
+    }
+
+    @NonNull
+    public static DaveSessionPool create(int size, @Nullable String authSessionId, @NonNull Executor refillExecutor) {
+        DaveSessionPool pool = new DaveSessionPool(size, authSessionId, refillExecutor);
+        pool.scheduleRefill();
+        return pool;
+    }
+
+    @Nullable
+    public String getAuthSessionId() {
+        return authSessionId;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWarmSessions() {
+        return pooled.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    // Sessions that had to be created inline because the pool was empty
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Never blocks on the refill, an empty pool creates a cold session on the calling thread
+    @NonNull
+    public DaveSessionImpl acquire() {
+        DaveSessionImpl session = sessions.poll();
+        if (session != null) {
+            pooled.decrementAndGet();
+            hits.increment();
+        } else {
+            misses.increment();
+            session = DaveSessionImpl.create(authSessionId);
+        }
+
+        scheduleRefill();
+        return session;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        DaveSessionImpl session;
+        while ((session = sessions.poll()) != null) {
+            pooled.decrementAndGet();
+            session.close();
+        }
+    }
+
+    private void scheduleRefill() {
+        if (!closed && pooled.get() < size && refilling.compareAndSet(false, true)) {
+            refillExecutor.execute(this::refill);
+        }
+    }
+
+    private void refill() {
+        try {
+            while (!closed && pooled.get() < size) {
+                sessions.add(DaveSessionImpl.create(authSessionId));
+                pooled.incrementAndGet();
+            }
+            log.debug("Refilled session pool to {} sessions", pooled.get());
+        } catch (RuntimeException e) {
+            log.error("Failed to refill session pool", e);
+        } finally {
+            refilling.set(false);
+        }
+
+        // Closed while the last session was created
+        if (closed) {
+            close();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package club.minnced.discord.jdave.manager;
+
+import club.minnced.discord.jdave.utils.NativeHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.NonNull;
+
+// Shared view over all sessions of a process, usually one per session factory.
+// MLS work runs on a fixed set of executor shards, a channel always maps to the same shard, so one busy guild can
+// only delay the guilds sharing its shard. Sessions and decryptors count against global limits: new sessions are
+// refused once the session limit is reached, users beyond the decryptor limit stay known and get a decryptor once
+// budget frees up again. The optional byte budget applies the same to the estimated native memory of the process.
+public final class DaveSessionRegistry implements AutoCloseable {
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+    public static final long UNLIMITED_BYTES = Long.MAX_VALUE;
+
+    private final ExecutorService[] shards;
+    private final int maxSessions;
+    private final int maxDecryptors;
+    private final long maxNativeBytes;
+    private volatile boolean closed;
+
+    private final Set<DaveSessionManager> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger admittedSessions = new AtomicInteger();
+    private final AtomicInteger reservedDecryptors = new AtomicInteger();
+    private final LongAdder rejectedSessions = new LongAdder();
+    private final LongAdder rejectedDecryptors = new LongAdder();
+
+    private DaveSessionRegistry(
+            int shardCount, int threadsPerShard, int maxSessions, int maxDecryptors, long maxNativeBytes) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive, provided " + shardCount);
+        }
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("Session limit must be positive, provided " + maxSessions);
+        }
+        if (maxDecryptors < 0) {
+            throw new IllegalArgumentException("Decryptor limit must not be negative, provided " + maxDecryptors);
+        }
+        if (maxNativeBytes < 1) {
+            throw new IllegalArgumentException("Native byte limit must be positive, provided " + maxNativeBytes);
+        }
+
+        this.maxSessions = maxSessions;
+        this.maxDecryptors = maxDecryptors;
+        this.maxNativeBytes = maxNativeBytes;
+        this.shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = ControlPlaneExecutors.newBoundedExecutor("jdave-mls-shard-" + i, threadsPerShard);
+        }
+    }
+
+    // One single-threaded shard per two cores, without any limits
+    @NonNull
+    public static DaveSessionRegistry create() {
+        int shards = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return create(shards, 1, UNLIMITED, UNLIMITED);
+    }
+
+    @NonNull
+    public static DaveSessionRegistry create(int shardCount, int threadsPerShard, int maxSessions, int maxDecryptors) {
+        return create(shardCount, threadsPerShard, maxSessions, maxDecryptors, UNLIMITED_BYTES);
+    }
+
+    // The byte limit is checked against NativeHandles#getEstimatedBytes, which covers every jdave handle of the
+    // process. It is a soft limit, checked before each session or decryptor is created.
+    @NonNull
+    public static DaveSessionRegistry create(
+            int shardCount, int threadsPerShard, int maxSessions, int maxDecryptors, long maxNativeBytes) {
+        return new DaveSessionRegistry(shardCount, threadsPerShard, maxSessions, maxDecryptors, maxNativeBytes);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public int getMaxDecryptors() {
+        return maxDecryptors;
+    }
+
+    public long getMaxNativeBytes() {
+        return maxNativeBytes;
+    }
+
+    @NonNull
+    public Executor getExecutor(long channelId) {
+        return shards[Math.floorMod(Long.hashCode(channelId * 0x9E3779B97F4A7C15L), shards.length)];
+    }
+
+    @NonNull
+    public RegistryStats getStats() {
+        long knownUsers = 0;
+        long liveDecryptors = 0;
+        long materialized = 0;
+        long evicted = 0;
+        long exports = 0;
+        long transitions = 0;
+        int count = 0;
+
+        for (DaveSessionManager manager : sessions) {
+            DecryptorStats decryptorStats = manager.getDecryptorStats();
+            TransitionStats transitionStats = manager.getTransitionStats();
+            knownUsers += decryptorStats.knownUsers();
+            liveDecryptors += decryptorStats.liveDecryptors();
+            materialized += decryptorStats.materializedDecryptors();
+            evicted += decryptorStats.evictedDecryptors();
+            exports += transitionStats.keyRatchetExports();
+            transitions += transitionStats.executedTransitions();
+            count++;
+        }
+
+        return new RegistryStats(
+                count,
+                knownUsers,
+                liveDecryptors,
+                materialized,
+                evicted,
+                exports,
+                transitions,
+                rejectedSessions.sum(),
+                rejectedDecryptors.sum());
+    }
+
+    // Metrics of every registered session merged into one, sessions with metrics disabled only add their transitions
+    @NonNull
+    public MetricsSnapshot getMetrics() {
+        List<MetricsSnapshot> snapshots = new ArrayList<>();
+        for (DaveSessionManager manager : sessions) {
+            snapshots.add(manager.getMetrics());
+        }
+        return MetricsSnapshot.mergeAll(snapshots);
+    }
+
+    // Closes every registered session before stopping the shard executors, a session left open would keep
+    // submitting its MLS work to a stopped shard. New sessions are refused from now on.
+    @Override
+    public void close() {
+        closed = true;
+        for (DaveSessionManager manager : List.copyOf(sessions)) {
+            manager.close();
+        }
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    void admit() {
+        if (closed) {
+            throw new IllegalStateException("Session registry is closed");
+        }
+        if (!hasByteBudget()) {
+            rejectedSessions.increment();
+            throw new DaveAdmissionException("Native memory limit of " + maxNativeBytes + " bytes reached");
+        }
+
+        while (true) {
+            int current = admittedSessions.get();
+            if (current >= maxSessions) {
+                rejectedSessions.increment();
+                throw new DaveAdmissionException("Session limit of " + maxSessions + " reached");
+            }
+            if (admittedSessions.compareAndSet(current, current + 1)) {
+                return;
+            }
+        }
+    }
+
+    // Gives back an admission that did not end up in a registered session
+    void cancelAdmission() {
+        admittedSessions.decrementAndGet();
+    }
+
+    void register(@NonNull DaveSessionManager manager) {
+        sessions.add(manager);
+    }
+
+    void unregister(@NonNull DaveSessionManager manager) {
+        if (sessions.remove(manager)) {
+            admittedSessions.decrementAndGet();
+        }
+    }
+
+    boolean hasDecryptorBudget() {
+        return reservedDecryptors.get() < maxDecryptors && hasByteBudget();
+    }
+
+    boolean tryReserveDecryptor() {
+        if (!hasByteBudget()) {
+            rejectedDecryptors.increment();
+            return false;
+        }
+
+        while (true) {
+            int current = reservedDecryptors.get();
+            if (current >= maxDecryptors) {
+                rejectedDecryptors.increment();
+                return false;
+            }
+            if (reservedDecryptors.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void releaseDecryptor() {
+        reservedDecryptors.decrementAndGet();
+    }
+
+    // Summing the estimate is skipped entirely without a byte limit, the media path asks for every missing decryptor
+    private boolean hasByteBudget() {
+        return maxNativeBytes == UNLIMITED_BYTES || NativeHandles.getEstimatedBytes() < maxNativeBytes;
+    }
+}
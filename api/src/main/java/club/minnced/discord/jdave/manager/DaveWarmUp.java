@@ -0,0 +1,77 @@
+package club.minnced.discord.jdave.manager;
+
+import java.util.concurrent.CompletableFuture;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Runs the frame and transition paths on throwaway sessions before the first real connection, so they are compiled
+// and their downcalls linked by the time the first voice frames arrive.
+// Each round of the training workload encrypts and decrypts about twice per iteration, the default is well past the
+// invocation thresholds of tiered compilation up to C2.
+public final class DaveWarmUp {
+    private static final Logger log = LoggerFactory.getLogger(DaveWarmUp.class);
+    public static final int DEFAULT_ITERATIONS = 10_000;
+
+    private static @Nullable CompletableFuture<Void> running;
+
+    private DaveWarmUp() {}
+
+    public static void warmUp() {
+        warmUp(DEFAULT_ITERATIONS);
+    }
+
+    public static void warmUp(int iterations) {
+        checkIterations(iterations);
+        run(iterations);
+    }
+
+    // Warms up on a separate daemon thread, only needed once per JVM. The first call wins: while it runs or after it
+    // succeeded, later calls return the same future and their iteration count is ignored. A failed warm-up is not
+    // cached, the next call starts a new one.
+    @NonNull
+    public static synchronized CompletableFuture<Void> warmUpAsync(int iterations) {
+        checkIterations(iterations);
+        if (running != null) {
+            return running;
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Thread thread = new Thread(
+                () -> {
+                    try {
+                        run(iterations);
+                        future.complete(null);
+                    } catch (Throwable e) {
+                        log.error("Failed to warm up", e);
+                        clearFailed(future);
+                        future.completeExceptionally(e);
+                    }
+                },
+                "jdave-warm-up");
+        thread.setDaemon(true);
+
+        running = future;
+        thread.start();
+        return future;
+    }
+
+    private static synchronized void clearFailed(@NonNull CompletableFuture<Void> future) {
+        if (running == future) {
+            running = null;
+        }
+    }
+
+    private static void run(int iterations) {
+        long start = System.nanoTime();
+        TrainingWorkload.run(iterations);
+        log.debug("Warm-up of {} iterations finished in {} ms", iterations, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void checkIterations(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be positive, provided " + iterations);
+        }
+    }
+}
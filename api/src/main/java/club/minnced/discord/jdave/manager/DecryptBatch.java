@@ -0,0 +1,120 @@
+package club.minnced.discord.jdave.manager;
+
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+// One tick worth of received frames, meant to be reused across ticks to keep the receive path allocation free.
+// Not thread-safe, fill it on the receiving thread and hand it to DaveReceivePipeline.decrypt.
+public final class DecryptBatch {
+    private long[] userIds;
+    private DaveMediaType[] mediaTypes;
+    private ByteBuffer[] encrypted;
+    private ByteBuffer[] decrypted;
+    private DaveDecryptResultType[] results;
+    private int[] lanes;
+    private int size;
+
+    public DecryptBatch() {
+        this(32);
+    }
+
+    public DecryptBatch(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, provided " + initialCapacity);
+        }
+
+        this.userIds = new long[initialCapacity];
+        this.mediaTypes = new DaveMediaType[initialCapacity];
+        this.encrypted = new ByteBuffer[initialCapacity];
+        this.decrypted = new ByteBuffer[initialCapacity];
+        this.results = new DaveDecryptResultType[initialCapacity];
+        this.lanes = new int[initialCapacity];
+    }
+
+    // Frames of the same user are decrypted in the order they were added, returns the index of the frame
+    public int add(
+            long userId,
+            @NonNull DaveMediaType mediaType,
+            @NonNull ByteBuffer encrypted,
+            @NonNull ByteBuffer decrypted) {
+        if (size == userIds.length) {
+            grow();
+        }
+
+        int index = size++;
+        this.userIds[index] = userId;
+        this.mediaTypes[index] = mediaType;
+        this.encrypted[index] = encrypted;
+        this.decrypted[index] = decrypted;
+        this.results[index] = null;
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getUserId(int index) {
+        return userIds[checkIndex(index)];
+    }
+
+    @NonNull
+    public ByteBuffer getDecrypted(int index) {
+        return decrypted[checkIndex(index)];
+    }
+
+    // Null until the batch has been decrypted
+    @Nullable
+    public DaveDecryptResultType getResult(int index) {
+        return results[checkIndex(index)];
+    }
+
+    // Drops the buffer references, the arrays are kept for the next tick
+    public void clear() {
+        Arrays.fill(mediaTypes, 0, size, null);
+        Arrays.fill(encrypted, 0, size, null);
+        Arrays.fill(decrypted, 0, size, null);
+        Arrays.fill(results, 0, size, null);
+        size = 0;
+    }
+
+    void assignLanes(int laneCount) {
+        for (int i = 0; i < size; i++) {
+            lanes[i] = laneCount == 1 ? 0 : laneOf(userIds[i], laneCount);
+        }
+    }
+
+    // Every lane decrypts its frames in insertion order, all frames of a user share the same lane
+    void decryptLane(@NonNull DaveSessionManager manager, int lane) {
+        for (int i = 0; i < size; i++) {
+            if (lanes[i] == lane) {
+                results[i] = manager.decrypt(mediaTypes[i], userIds[i], encrypted[i], decrypted[i]);
+            }
+        }
+    }
+
+    private static int laneOf(long userId, int laneCount) {
+        // Snowflakes share their high bits, mix them so neighbouring ids spread over the lanes
+        long mixed = userId * 0x9E3779B97F4A7C15L;
+        return (int) Long.remainderUnsigned(mixed ^ (mixed >>> 32), laneCount);
+    }
+
+    private int checkIndex(int index) {
+        return Objects.checkIndex(index, size);
+    }
+
+    private void grow() {
+        int capacity = userIds.length * 2;
+        userIds = Arrays.copyOf(userIds, capacity);
+        mediaTypes = Arrays.copyOf(mediaTypes, capacity);
+        encrypted = Arrays.copyOf(encrypted, capacity);
+        decrypted = Arrays.copyOf(decrypted, capacity);
+        results = Arrays.copyOf(results, capacity);
+        lanes = Arrays.copyOf(lanes, capacity);
+    }
+}
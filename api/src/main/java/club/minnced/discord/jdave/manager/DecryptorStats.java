@@ -0,0 +1,5 @@
+package club.minnced.discord.jdave.manager;
+
+// knownUsers includes members without a live decryptor, which only cost a roster entry
+public record DecryptorStats(
+        int knownUsers, int liveDecryptors, long materializedDecryptors, long evictedDecryptors) {}
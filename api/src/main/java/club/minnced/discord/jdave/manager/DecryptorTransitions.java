@@ -0,0 +1,83 @@
+package club.minnced.discord.jdave.manager;
+
+import club.minnced.discord.jdave.DaveDecryptor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+final class DecryptorTransitions {
+    // Below this many decryptors, handing chunks to the key ratchet executor and joining them again costs more than
+    // the export time it saves
+    static final int MIN_PARALLEL_DECRYPTORS = 16;
+
+    private DecryptorTransitions() {}
+
+    // Returns whether the key ratchet was actually exported
+    static boolean prepare(DaveDecryptor decryptor, int protocolVersion) {
+        // A single decryptor is always exported on the calling thread
+        return prepare(List.of(decryptor), protocolVersion, 1, Runnable::run) > 0;
+    }
+
+    // Returns the number of key ratchets that were actually exported
+    static int prepare(
+            Collection<DaveDecryptor> decryptors, int protocolVersion, int parallelism, Executor executor) {
+        if (decryptors.isEmpty()) {
+            return 0;
+        }
+
+        DaveEvents.KeyRatchetExportEvent event = new DaveEvents.KeyRatchetExportEvent();
+        event.begin();
+
+        int chunks = Math.min(parallelism, decryptors.size() / (MIN_PARALLEL_DECRYPTORS / 2));
+        int exported = chunks <= 1
+                ? prepareAll(decryptors, protocolVersion)
+                : prepareChunks(decryptors, protocolVersion, chunks, executor);
+
+        event.protocolVersion = protocolVersion;
+        event.attempted = decryptors.size();
+        event.exported = exported;
+        event.parallelism = Math.max(1, chunks);
+        event.commit();
+        return exported;
+    }
+
+    private static int prepareChunks(
+            Collection<DaveDecryptor> decryptors, int protocolVersion, int chunks, Executor executor) {
+        List<DaveDecryptor> all = new ArrayList<>(decryptors);
+        int chunkSize = (all.size() + chunks - 1) / chunks;
+
+        // The calling thread takes the first chunk itself instead of idling
+        List<CompletableFuture<Integer>> tasks = new ArrayList<>(chunks - 1);
+        for (int start = chunkSize; start < all.size(); start += chunkSize) {
+            List<DaveDecryptor> chunk = all.subList(start, Math.min(all.size(), start + chunkSize));
+            tasks.add(CompletableFuture.supplyAsync(() -> prepareAll(chunk, protocolVersion), executor));
+        }
+
+        int exported = prepareAll(all.subList(0, chunkSize), protocolVersion);
+
+        try {
+            for (CompletableFuture<Integer> task : tasks) {
+                exported += task.join();
+            }
+            return exported;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static int prepareAll(Collection<DaveDecryptor> decryptors, int protocolVersion) {
+        int exported = 0;
+        for (DaveDecryptor decryptor : decryptors) {
+            if (decryptor.prepareTransition(protocolVersion)) {
+                exported++;
+            }
+        }
+        return exported;
+    }
+}
@@ -0,0 +1,82 @@
+package club.minnced.discord.jdave.manager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.NonNull;
+
+final class FrameCounters {
+    // libdave result codes are small, the slot past them collects unknown codes and calls that never reached libdave
+    private static final int RESULT_CODES = 8;
+    private static final int SUCCESS_CODE = 0;
+    private static final int OTHER_CODE = -1;
+
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder[] failures = new LongAdder[RESULT_CODES + 1];
+    private final LongAdder unavailable = new LongAdder();
+    private final LongAdder passthroughFrames = new LongAdder();
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder outputBytes = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    FrameCounters() {
+        for (int i = 0; i < failures.length; i++) {
+            failures[i] = new LongAdder();
+        }
+    }
+
+    void record(int resultCode, boolean passthrough, long input, long output, long nanos) {
+        frames.increment();
+        if (resultCode != SUCCESS_CODE) {
+            failures[resultCode > 0 && resultCode < RESULT_CODES ? resultCode : RESULT_CODES].increment();
+        }
+        if (passthrough) {
+            passthroughFrames.increment();
+        }
+        inputBytes.add(input);
+        outputBytes.add(output);
+        latency.record(nanos);
+    }
+
+    // Frames that never reached libdave, e.g. because the user has no decryptor
+    void recordUnavailable() {
+        frames.increment();
+        unavailable.increment();
+    }
+
+    long frames() {
+        return frames.sum();
+    }
+
+    // Rejected by libdave or never reaching it
+    long failedFrames() {
+        long failed = unavailable.sum();
+        for (LongAdder counter : failures) {
+            failed += counter.sum();
+        }
+        return failed;
+    }
+
+    @NonNull
+    FrameStats snapshot() {
+        long failed = 0;
+        Map<Integer, Long> failuresByResultCode = new HashMap<>();
+        for (int i = 0; i < failures.length; i++) {
+            long count = failures[i].sum();
+            if (count > 0) {
+                failed += count;
+                failuresByResultCode.put(i == RESULT_CODES ? OTHER_CODE : i, count);
+            }
+        }
+
+        return new FrameStats(
+                frames.sum(),
+                failed,
+                failuresByResultCode,
+                unavailable.sum(),
+                passthroughFrames.sum(),
+                inputBytes.sum(),
+                outputBytes.sum(),
+                latency.snapshot());
+    }
+}
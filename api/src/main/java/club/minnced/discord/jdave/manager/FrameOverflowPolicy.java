@@ -0,0 +1,9 @@
+package club.minnced.discord.jdave.manager;
+
+// What a full frame stream does with a new frame. The receiving thread never blocks in either case.
+public enum FrameOverflowPolicy {
+    // Overwrite the oldest undelivered frame, a slow consumer only ever hears the most recent audio
+    DROP_OLDEST,
+    // Refuse the new frame and report REJECTED to the receiving thread, which can back off on its own
+    REJECT,
+}
@@ -0,0 +1,49 @@
+package club.minnced.discord.jdave.manager;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.jspecify.annotations.NonNull;
+
+// failures are frames libdave rejected, unavailable ones never reached it because there was no encryptor or
+// decryptor to handle them. failuresByResultCode splits the failures by the raw libdave result code, -1 counts
+// unknown codes and calls on an already closed encryptor or decryptor. The latency covers the native call of every
+// frame that reached libdave.
+public record FrameStats(
+        long frames,
+        long failures,
+        @NonNull Map<Integer, Long> failuresByResultCode,
+        long unavailable,
+        long passthroughFrames,
+        long inputBytes,
+        long outputBytes,
+        @NonNull LatencySnapshot latency) {
+    private static final FrameStats EMPTY = new FrameStats(0, 0, Map.of(), 0, 0, 0, 0, LatencySnapshot.empty());
+
+    public FrameStats {
+        failuresByResultCode = Map.copyOf(failuresByResultCode);
+    }
+
+    @NonNull
+    public static FrameStats empty() {
+        return EMPTY;
+    }
+
+    public long encryptedFrames() {
+        return frames - unavailable - passthroughFrames;
+    }
+
+    @NonNull
+    public FrameStats merge(@NonNull FrameStats other) {
+        Map<Integer, Long> mergedFailures = new HashMap<>(failuresByResultCode);
+        other.failuresByResultCode.forEach((code, count) -> mergedFailures.merge(code, count, Long::sum));
+        return new FrameStats(
+                frames + other.frames,
+                failures + other.failures,
+                mergedFailures,
+                unavailable + other.unavailable,
+                passthroughFrames + other.passthroughFrames,
+                inputBytes + other.inputBytes,
+                outputBytes + other.outputBytes,
+                latency.merge(other.latency));
+    }
+}
@@ -0,0 +1,59 @@
+package club.minnced.discord.jdave.manager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.NonNull;
+
+// Lock-free histogram with two buckets per power of two, precise to about 25% over the whole range of longs.
+// Small enough to keep one per user, recording is a single atomic increment plus the running total.
+final class LatencyHistogram {
+    static final int BUCKETS = 126;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        counts.getAndIncrement(bucketOf(nanos));
+        totalNanos.add(nanos);
+        // Reads first, the max only changes a handful of times over the life of a session
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    @NonNull
+    LatencySnapshot snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return new LatencySnapshot(snapshot, totalNanos.sum(), maxNanos.get());
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < 2) {
+            return (int) nanos;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int half = (int) (nanos >>> (exponent - 1)) & 1;
+        return exponent * 2 + half;
+    }
+
+    // Smallest value that falls into the bucket
+    static long lowerBound(int bucket) {
+        if (bucket < 2) {
+            return bucket;
+        }
+
+        int exponent = bucket / 2;
+        return (2L + (bucket & 1)) << (exponent - 1);
+    }
+}
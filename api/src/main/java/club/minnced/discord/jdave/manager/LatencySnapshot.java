@@ -0,0 +1,88 @@
+package club.minnced.discord.jdave.manager;
+
+import java.util.Arrays;
+import org.jspecify.annotations.NonNull;
+
+// Bucket counts of a latency histogram, bucket bounds grow by powers of two with two buckets each.
+// The counts are copied in and out, so a snapshot can be shared and compared by value.
+public record LatencySnapshot(long @NonNull [] counts, long totalNanos, long maxNanos) {
+    private static final LatencySnapshot EMPTY = new LatencySnapshot(new long[LatencyHistogram.BUCKETS], 0, 0);
+
+    public LatencySnapshot {
+        counts = counts.clone();
+    }
+
+    @NonNull
+    public static LatencySnapshot empty() {
+        return EMPTY;
+    }
+
+    @Override
+    public long @NonNull [] counts() {
+        return counts.clone();
+    }
+
+    public long count() {
+        long count = 0;
+        for (long bucket : counts) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    public double meanNanos() {
+        long count = count();
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    // Upper bound of the bucket holding the given percentile, between 0 and 100
+    public long percentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, provided " + percentile);
+        }
+
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long upperBound = i + 1 < counts.length ? LatencyHistogram.lowerBound(i + 1) - 1 : Long.MAX_VALUE;
+                return Math.min(upperBound, maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    @NonNull
+    public LatencySnapshot merge(@NonNull LatencySnapshot other) {
+        long[] merged = new long[counts.length];
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] = counts[i] + other.counts[i];
+        }
+        return new LatencySnapshot(merged, totalNanos + other.totalNanos, Math.max(maxNanos, other.maxNanos));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof LatencySnapshot other
+                && totalNanos == other.totalNanos
+                && maxNanos == other.maxNanos
+                && Arrays.equals(counts, other.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(counts) + Long.hashCode(totalNanos)) + Long.hashCode(maxNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencySnapshot[counts=" + Arrays.toString(counts) + ", totalNanos=" + totalNanos + ", maxNanos="
+                + maxNanos + "]";
+    }
+}
@@ -0,0 +1,45 @@
+package club.minnced.discord.jdave.manager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jspecify.annotations.NonNull;
+
+// Point in time view of the session metrics. Snapshots of several sessions merge into one, users present in more
+// than one session are combined.
+public record MetricsSnapshot(
+        @NonNull FrameStats encrypt,
+        @NonNull FrameStats decrypt,
+        @NonNull Map<Long, FrameStats> users,
+        @NonNull TransitionStats transitions) {
+    private static final MetricsSnapshot EMPTY = new MetricsSnapshot(
+            FrameStats.empty(), FrameStats.empty(), Map.of(), new TransitionStats(0, 0, 0, 0, 0, 0));
+
+    @NonNull
+    public static MetricsSnapshot empty() {
+        return EMPTY;
+    }
+
+    @NonNull
+    public MetricsSnapshot merge(@NonNull MetricsSnapshot other) {
+        return mergeAll(List.of(this, other));
+    }
+
+    // Linear in the total number of users, the user map is only built and copied once
+    @NonNull
+    public static MetricsSnapshot mergeAll(@NonNull Iterable<MetricsSnapshot> snapshots) {
+        FrameStats encrypt = FrameStats.empty();
+        FrameStats decrypt = FrameStats.empty();
+        TransitionStats transitions = EMPTY.transitions;
+        Map<Long, FrameStats> users = new HashMap<>();
+
+        for (MetricsSnapshot snapshot : snapshots) {
+            encrypt = encrypt.merge(snapshot.encrypt);
+            decrypt = decrypt.merge(snapshot.decrypt);
+            transitions = transitions.merge(snapshot.transitions);
+            snapshot.users.forEach((userId, stats) -> users.merge(userId, stats, FrameStats::merge));
+        }
+
+        return new MetricsSnapshot(encrypt, decrypt, Map.copyOf(users), transitions);
+    }
+}
@@ -0,0 +1,201 @@
+package club.minnced.discord.jdave.manager;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+// Immutable map of long keys, every update returns a new map sharing all untouched nodes with the old one.
+// A hash trie with 32 children per level, so an update only copies the few nodes on the path to its key instead of
+// the whole map, and lookups take no lock and box no key. Keys are mixed with a bijective function, distinct keys
+// always end up in distinct leaves.
+final class PersistentLongMap<V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(null, 0);
+
+    private final @Nullable Node root;
+    private final int size;
+
+    private PersistentLongMap(@Nullable Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @NonNull
+    @SuppressWarnings("unchecked")
+    static <V> PersistentLongMap<V> empty() {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        long hash = mix(key);
+        Object child = root;
+        for (int shift = 0; child instanceof Node node; shift += BITS) {
+            child = node.find((int) (hash >>> shift) & MASK);
+        }
+        return child instanceof Leaf leaf && leaf.key == key ? (V) leaf.value : null;
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @NonNull
+    PersistentLongMap<V> with(long key, @NonNull V value) {
+        Leaf leaf = new Leaf(key, mix(key), value);
+        if (root == null) {
+            return new PersistentLongMap<>(Node.of(leaf, 0), 1);
+        }
+
+        boolean[] added = new boolean[1];
+        Node updated = root.with(leaf, 0, added);
+        return new PersistentLongMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    @NonNull
+    PersistentLongMap<V> without(long key) {
+        if (root == null) {
+            return this;
+        }
+
+        Object updated = root.without(key, mix(key), 0);
+        if (updated == root) {
+            return this;
+        }
+        if (size == 1) {
+            return empty();
+        }
+        // A root reduced to one leaf is kept as a node, lookups expect the root to be one
+        return new PersistentLongMap<>(updated instanceof Node node ? node : Node.of((Leaf) updated, 0), size - 1);
+    }
+
+    void forEach(@NonNull Visitor<? super V> visitor) {
+        if (root != null) {
+            root.forEach(visitor);
+        }
+    }
+
+    @FunctionalInterface
+    interface Visitor<V> {
+        void accept(long key, @NonNull V value);
+    }
+
+    // Murmur3 finalizer, a bijection on long so the full hash identifies the key
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private record Leaf(long key, long hash, @NonNull Object value) {}
+
+    // Children are leaves or nodes, stored densely in the order of their bits in the bitmap
+    private static final class Node {
+        private final int bitmap;
+        private final Object[] children;
+
+        private Node(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        static Node of(Leaf leaf, int shift) {
+            return new Node(1 << ((int) (leaf.hash >>> shift) & MASK), new Object[] {leaf});
+        }
+
+        @Nullable
+        Object find(int fragment) {
+            int bit = 1 << fragment;
+            return (bitmap & bit) == 0 ? null : children[Integer.bitCount(bitmap & (bit - 1))];
+        }
+
+        Node with(Leaf leaf, int shift, boolean[] added) {
+            int bit = 1 << ((int) (leaf.hash >>> shift) & MASK);
+            int index = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Object[] copy = new Object[children.length + 1];
+                System.arraycopy(children, 0, copy, 0, index);
+                copy[index] = leaf;
+                System.arraycopy(children, index, copy, index + 1, children.length - index);
+                return new Node(bitmap | bit, copy);
+            }
+
+            Object child = children[index];
+            Object replacement;
+            if (child instanceof Node node) {
+                replacement = node.with(leaf, shift + BITS, added);
+            } else if (((Leaf) child).key == leaf.key) {
+                replacement = leaf;
+            } else {
+                added[0] = true;
+                replacement = Node.of((Leaf) child, shift + BITS).with(leaf, shift + BITS, added);
+            }
+
+            Object[] copy = children.clone();
+            copy[index] = replacement;
+            return new Node(bitmap, copy);
+        }
+
+        // Returns this node if the key is absent, null if the node became empty, or the single remaining leaf,
+        // which the parent then stores in place of the node
+        @Nullable
+        Object without(long key, long hash, int shift) {
+            int bit = 1 << ((int) (hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+
+            int index = Integer.bitCount(bitmap & (bit - 1));
+            Object child = children[index];
+            Object replacement;
+            if (child instanceof Node node) {
+                replacement = node.without(key, hash, shift + BITS);
+                if (replacement == node) {
+                    return this;
+                }
+            } else if (((Leaf) child).key == key) {
+                replacement = null;
+            } else {
+                return this;
+            }
+
+            if (replacement != null) {
+                Object[] copy = children.clone();
+                copy[index] = replacement;
+                return new Node(bitmap, copy);
+            }
+            if (children.length == 1) {
+                return null;
+            }
+            if (children.length == 2 && children[1 - index] instanceof Leaf remaining) {
+                return remaining;
+            }
+
+            Object[] copy = new Object[children.length - 1];
+            System.arraycopy(children, 0, copy, 0, index);
+            System.arraycopy(children, index + 1, copy, index, children.length - index - 1);
+            return new Node(bitmap & ~bit, copy);
+        }
+
+        @SuppressWarnings("unchecked")
+        <V> void forEach(Visitor<? super V> visitor) {
+            for (Object child : children) {
+                if (child instanceof Node node) {
+                    node.forEach(visitor);
+                } else {
+                    Leaf leaf = (Leaf) child;
+                    visitor.accept(leaf.key, (V) leaf.value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package club.minnced.discord.jdave.manager;
+
+// Totals over every session currently registered, the rejection counters cover the registry's whole lifetime
+public record RegistryStats(
+        int sessions,
+        long knownUsers,
+        long liveDecryptors,
+        long materializedDecryptors,
+        long evictedDecryptors,
+        long keyRatchetExports,
+        long executedTransitions,
+        long rejectedSessions,
+        long rejectedDecryptors) {}
@@ -0,0 +1,30 @@
+package club.minnced.discord.jdave.manager;
+
+import org.jspecify.annotations.NonNull;
+
+// Cheap view of a session for polling, read from the media state without taking any lock.
+// Frame counts are zero if metrics are disabled, failures include frames without an encryptor or decryptor.
+// The native estimate is a rough per-handle figure for container sizing, not a measurement.
+public record SessionDiagnostics(
+        long channelId,
+        long selfUserId,
+        @NonNull DaveSessionMode mode,
+        int protocolVersion,
+        boolean passthrough,
+        boolean closed,
+        int pendingTransitions,
+        int knownUsers,
+        int liveDecryptors,
+        long encryptFrames,
+        long encryptFailures,
+        long decryptFrames,
+        long decryptFailures,
+        long estimatedNativeBytes) {
+    public double encryptFailureRate() {
+        return encryptFrames == 0 ? 0 : (double) encryptFailures / encryptFrames;
+    }
+
+    public double decryptFailureRate() {
+        return decryptFrames == 0 ? 0 : (double) decryptFailures / decryptFrames;
+    }
+}
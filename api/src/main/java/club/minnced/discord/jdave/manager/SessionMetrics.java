@@ -0,0 +1,63 @@
+package club.minnced.discord.jdave.manager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.NonNull;
+
+// Frame counters of a session and of each user it decrypts, only exists while metrics are enabled
+final class SessionMetrics {
+    private final FrameCounters encrypt = new FrameCounters();
+    private final FrameCounters decrypt = new FrameCounters();
+    private final Map<Long, FrameCounters> users = new ConcurrentHashMap<>();
+
+    void recordEncrypt(int resultCode, boolean passthrough, long input, long output, long nanos) {
+        encrypt.record(resultCode, passthrough, input, output, nanos);
+    }
+
+    void recordEncryptUnavailable() {
+        encrypt.recordUnavailable();
+    }
+
+    void recordDecrypt(long userId, int resultCode, boolean passthrough, long input, long output, long nanos) {
+        decrypt.record(resultCode, passthrough, input, output, nanos);
+        user(userId).record(resultCode, passthrough, input, output, nanos);
+    }
+
+    // Only counts towards users that already decrypted a frame, unknown senders must not grow the map
+    void recordDecryptUnavailable(long userId) {
+        decrypt.recordUnavailable();
+        FrameCounters counters = users.get(userId);
+        if (counters != null) {
+            counters.recordUnavailable();
+        }
+    }
+
+    @NonNull
+    FrameCounters encryptCounters() {
+        return encrypt;
+    }
+
+    @NonNull
+    FrameCounters decryptCounters() {
+        return decrypt;
+    }
+
+    void removeUser(long userId) {
+        users.remove(userId);
+    }
+
+    @NonNull
+    MetricsSnapshot snapshot(@NonNull TransitionStats transitions) {
+        Map<Long, FrameStats> userStats = new HashMap<>(users.size());
+        users.forEach((userId, counters) -> userStats.put(userId, counters.snapshot()));
+        return new MetricsSnapshot(encrypt.snapshot(), decrypt.snapshot(), Map.copyOf(userStats), transitions);
+    }
+
+    @NonNull
+    private FrameCounters user(long userId) {
+        // Plain lookup first, computeIfAbsent would lock the bin even if the user already has counters
+        FrameCounters counters = users.get(userId);
+        return counters != null ? counters : users.computeIfAbsent(userId, ignored -> new FrameCounters());
+    }
+}
@@ -0,0 +1,10 @@
+package club.minnced.discord.jdave.manager;
+
+// How an idle DaveCryptoThread waits for the next frame. Neither strategy parks, parking is the wake-up
+// jitter this mode exists to avoid.
+public enum SpinWaitStrategy {
+    // Spins with Thread.onSpinWait, lowest latency but occupies a full core
+    BUSY_SPIN,
+    // Spins for a short while, then yields between polls so other threads can share the core
+    SPIN_THEN_YIELD,
+}
@@ -0,0 +1,89 @@
+package club.minnced.discord.jdave.manager;
+
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.ffi.LibDave;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Representative run over the session lifecycle and the media path, behind DaveWarmUp for JIT warm-up and AOT cache
+// training. Without an external sender there is no real MLS group, so the encrypted round exercises the protocol
+// paths up to the missing key ratchet.
+final class TrainingWorkload {
+    private static final Logger log = LoggerFactory.getLogger(TrainingWorkload.class);
+    private static final int MEMBERS = 16;
+    private static final int OPUS_FRAME_SIZE = 160;
+
+    private TrainingWorkload() {}
+
+    // Runs every stage with the given number of frames per media round
+    static void run(int frames) {
+        Random random = new Random(42);
+        long selfUserId = random.nextLong();
+        long[] userIds = random.longs(MEMBERS).toArray();
+
+        log.debug("Training with libdave protocol version {}", LibDave.getMaxSupportedProtocolVersion());
+
+        ByteBuffer input = ByteBuffer.allocateDirect(OPUS_FRAME_SIZE);
+        ByteBuffer output = ByteBuffer.allocateDirect(OPUS_FRAME_SIZE * 2);
+        ByteBuffer heapInput = ByteBuffer.allocate(OPUS_FRAME_SIZE);
+        ByteBuffer heapOutput = ByteBuffer.allocate(OPUS_FRAME_SIZE * 2);
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(selfUserId, random.nextLong(), new NoopCallbacks())) {
+            // Passthrough round, the protocol is disabled until the gateway selects it
+            manager.onSelectProtocolAck(0);
+            manager.addUsers(userIds);
+            mediaRound(manager, userIds, frames, input, output);
+            mediaRound(manager, userIds, frames / 4, heapInput, heapOutput);
+
+            // Encrypted round and transition cycles
+            manager.onSelectProtocolAck(LibDave.getMaxSupportedProtocolVersion());
+            for (int transitionId = 1; transitionId <= 4; transitionId++) {
+                manager.onDaveProtocolPrepareTransition(transitionId, LibDave.getMaxSupportedProtocolVersion());
+                manager.onDaveProtocolExecuteTransition(transitionId);
+            }
+            mediaRound(manager, userIds, frames, input, output);
+
+            for (long userId : userIds) {
+                manager.removeUser(userId);
+            }
+            for (long userId : userIds) {
+                manager.addUser(userId);
+            }
+        }
+    }
+
+    private static void mediaRound(
+            @NonNull DaveSessionManager manager,
+            long @NonNull [] userIds,
+            int frames,
+            @NonNull ByteBuffer input,
+            @NonNull ByteBuffer output) {
+        for (int i = 0; i < frames; i++) {
+            input.clear();
+            output.clear();
+            manager.encrypt(DaveMediaType.AUDIO, 1, input, output);
+
+            input.clear();
+            output.clear();
+            manager.decrypt(DaveMediaType.AUDIO, userIds[i % userIds.length], input, output);
+        }
+    }
+
+    private static final class NoopCallbacks implements DaveSessionManagerCallbacks {
+        @Override
+        public void sendMLSKeyPackage(@NonNull ByteBuffer mlsKeyPackage) {}
+
+        @Override
+        public void sendDaveProtocolReadyForTransition(int transitionId) {}
+
+        @Override
+        public void sendMLSCommitWelcome(@NonNull ByteBuffer commitWelcomeMessage) {}
+
+        @Override
+        public void sendMLSInvalidCommitWelcome(int transitionId) {}
+    }
+}
@@ -0,0 +1,49 @@
+package club.minnced.discord.jdave.manager;
+
+import static club.minnced.discord.jdave.DaveConstants.DISABLED_PROTOCOL_VERSION;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.NonNull;
+
+final class TransitionCounters {
+    private final LongAdder keyRatchetExports = new LongAdder();
+    private final LongAdder skippedKeyRatchetExports = new LongAdder();
+    private final LongAdder executedTransitions = new LongAdder();
+    private final LongAdder totalExecuteNanos = new LongAdder();
+    private final AtomicLong lastExecuteNanos = new AtomicLong();
+    private final AtomicLong maxExecuteNanos = new AtomicLong();
+
+    void recordPrepare(int attempted, int exported, int protocolVersion) {
+        keyRatchetExports.add(exported);
+        if (protocolVersion != DISABLED_PROTOCOL_VERSION) {
+            skippedKeyRatchetExports.add(attempted - exported);
+        }
+    }
+
+    void recordExport(boolean exported) {
+        if (exported) {
+            keyRatchetExports.increment();
+        } else {
+            skippedKeyRatchetExports.increment();
+        }
+    }
+
+    void recordExecute(long nanos) {
+        executedTransitions.increment();
+        totalExecuteNanos.add(nanos);
+        lastExecuteNanos.set(nanos);
+        maxExecuteNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    @NonNull
+    TransitionStats snapshot() {
+        return new TransitionStats(
+                keyRatchetExports.sum(),
+                skippedKeyRatchetExports.sum(),
+                executedTransitions.sum(),
+                lastExecuteNanos.get(),
+                maxExecuteNanos.get(),
+                totalExecuteNanos.sum());
+    }
+}
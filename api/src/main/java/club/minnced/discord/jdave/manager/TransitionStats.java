@@ -0,0 +1,23 @@
+package club.minnced.discord.jdave.manager;
+
+import org.jspecify.annotations.NonNull;
+
+public record TransitionStats(
+        long keyRatchetExports,
+        long skippedKeyRatchetExports,
+        long executedTransitions,
+        long lastExecuteNanos,
+        long maxExecuteNanos,
+        long totalExecuteNanos) {
+    // The last execution of a merged result is the slower of the two, there is no order across sessions
+    @NonNull
+    public TransitionStats merge(@NonNull TransitionStats other) {
+        return new TransitionStats(
+                keyRatchetExports + other.keyRatchetExports,
+                skippedKeyRatchetExports + other.skippedKeyRatchetExports,
+                executedTransitions + other.executedTransitions,
+                Math.max(lastExecuteNanos, other.lastExecuteNanos),
+                Math.max(maxExecuteNanos, other.maxExecuteNanos),
+                totalExecuteNanos + other.totalExecuteNanos);
+    }
+}
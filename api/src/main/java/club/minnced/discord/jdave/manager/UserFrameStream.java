@@ -0,0 +1,323 @@
+package club.minnced.discord.jdave.manager;
+
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveReceiveStreams.ReceiveResult;
+import club.minnced.discord.jdave.utils.HandleLifetime;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+// Decrypted frames of a single user, buffered in a preallocated off-heap ring.
+// The receiving thread is the only producer and decrypts straight into the next free slot, the single subscriber
+// drains the ring on the delivery executor. Neither side takes a lock and the producer never waits for the consumer.
+//
+// The ByteBuffer passed to onNext is reused for every frame, subscribers have to copy what they want to keep.
+public final class UserFrameStream implements Flow.Publisher<ByteBuffer> {
+    // Each slot starts with the frame length, the payload is kept 8 byte aligned
+    private static final long HEADER_SIZE = 8;
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+    private static final VarHandle WIP;
+    private static final VarHandle REQUESTED;
+    private static final VarHandle SUBSCRIBER;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(UserFrameStream.class, "head", long.class);
+            TAIL = lookup.findVarHandle(UserFrameStream.class, "tail", long.class);
+            WIP = lookup.findVarHandle(UserFrameStream.class, "wip", int.class);
+            REQUESTED = lookup.findVarHandle(UserFrameStream.class, "requested", long.class);
+            SUBSCRIBER = lookup.findVarHandle(UserFrameStream.class, "subscriber", Subscriber.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long userId;
+    private final int mask;
+    private final int maxFrameSize;
+    private final long slotSize;
+    private final FrameOverflowPolicy overflowPolicy;
+    private final Executor deliveryExecutor;
+
+    private final Arena arena;
+    private final MemorySegment ring;
+    // Producer side views of the slot payloads, created once so receiving a frame does not allocate
+    private final ByteBuffer[] slots;
+    // Extra slot past the ring, a full ring decrypts here first so a failed frame does not drop the oldest one
+    private final ByteBuffer spareSlot;
+    private final long spareOffset;
+    private final HandleLifetime lifetime;
+
+    private final LongAdder receivedFrames = new LongAdder();
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder rejectedFrames = new LongAdder();
+
+    // Next slot to deliver, advanced by the consumer and by the producer when it drops the oldest frame
+    @SuppressWarnings("unused")
+    private volatile long head;
+    // Next slot to write, only advanced by the producer
+    @SuppressWarnings("unused")
+    private volatile long tail;
+    // Work-in-progress counter, makes sure only one delivery loop runs at a time
+    @SuppressWarnings("unused")
+    private volatile int wip;
+    @SuppressWarnings("unused")
+    private volatile long requested;
+
+    private volatile @Nullable Subscriber<? super ByteBuffer> subscriber;
+    private volatile boolean cancelled;
+    private volatile boolean completed;
+    // Set by an invalid request, signalled to the subscriber by the delivery loop
+    private volatile @Nullable Throwable requestError;
+    // Only touched by the delivery loop
+    private @Nullable ByteBuffer deliveryBuffer;
+
+    UserFrameStream(
+            long userId,
+            int capacity,
+            int maxFrameSize,
+            @NonNull FrameOverflowPolicy overflowPolicy,
+            @NonNull Executor deliveryExecutor) {
+        int slotCount = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.userId = userId;
+        this.mask = slotCount - 1;
+        this.maxFrameSize = maxFrameSize;
+        this.slotSize = HEADER_SIZE + ((maxFrameSize + 7L) & ~7L);
+        this.overflowPolicy = overflowPolicy;
+        this.deliveryExecutor = deliveryExecutor;
+
+        this.arena = Arena.ofShared();
+        this.ring = arena.allocate(slotSize * (slotCount + 1), 8);
+        this.slots = new ByteBuffer[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = ring.asSlice(i * slotSize + HEADER_SIZE, maxFrameSize).asByteBuffer();
+        }
+        this.spareOffset = slotCount * slotSize + HEADER_SIZE;
+        this.spareSlot = ring.asSlice(spareOffset, maxFrameSize).asByteBuffer();
+        this.lifetime = new HandleLifetime(arena::close);
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    // Frames currently waiting for the subscriber
+    public int getPendingFrames() {
+        return (int) ((long) TAIL.getVolatile(this) - (long) HEAD.getVolatile(this));
+    }
+
+    public long getReceivedFrames() {
+        return receivedFrames.sum();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.sum();
+    }
+
+    public long getRejectedFrames() {
+        return rejectedFrames.sum();
+    }
+
+    // Only one subscriber per stream, the ring has a single consumer
+    @Override
+    public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+        if (!SUBSCRIBER.compareAndSet(this, null, subscriber)) {
+            subscriber.onSubscribe(new NoopSubscription());
+            subscriber.onError(new IllegalStateException("Stream for user " + userId + " already has a subscriber"));
+            return;
+        }
+
+        subscriber.onSubscribe(new RingSubscription());
+        signal();
+    }
+
+    // Must only be called by one thread at a time, usually the thread receiving the user's packets
+    @NonNull
+    ReceiveResult receive(
+            @NonNull DaveSessionManager manager, @NonNull DaveMediaType mediaType, @NonNull ByteBuffer encrypted) {
+        if (!lifetime.tryAcquire()) {
+            return ReceiveResult.CLOSED;
+        }
+
+        boolean dropped = false;
+        try {
+            long currentTail = (long) TAIL.getOpaque(this);
+            long currentHead = (long) HEAD.getAcquire(this);
+            boolean full = currentTail - currentHead > mask;
+            if (full && overflowPolicy == FrameOverflowPolicy.REJECT) {
+                rejectedFrames.increment();
+                return ReceiveResult.REJECTED;
+            }
+
+            // The next slot of a full ring still holds the oldest frame, which may be read by the consumer right now
+            int index = (int) currentTail & mask;
+            ByteBuffer slot = full ? spareSlot.clear() : slots[index].clear();
+            long length = manager.decryptFrame(mediaType, userId, encrypted, slot);
+            if (length < 0) {
+                return ReceiveResult.FAILURE;
+            }
+
+            if (full) {
+                dropped = dropOldest(currentTail, currentHead);
+                MemorySegment.copy(ring, spareOffset, ring, index * slotSize + HEADER_SIZE, length);
+            }
+            ring.set(JAVA_INT, index * slotSize, (int) length);
+            TAIL.setRelease(this, currentTail + 1);
+            receivedFrames.increment();
+        } finally {
+            lifetime.release();
+        }
+
+        signal();
+        return dropped ? ReceiveResult.DROPPED_OLDEST : ReceiveResult.SUCCESS;
+    }
+
+    // Returns false if the consumer freed a slot itself in the meantime
+    private boolean dropOldest(long currentTail, long currentHead) {
+        while (currentTail - currentHead > mask) {
+            long witness = (long) HEAD.compareAndExchange(this, currentHead, currentHead + 1);
+            if (witness == currentHead) {
+                droppedFrames.increment();
+                return true;
+            }
+            currentHead = witness;
+        }
+        return false;
+    }
+
+    // Completes the subscriber once it has been notified, pending frames are discarded
+    void close() {
+        lifetime.close();
+        signal();
+    }
+
+    private void signal() {
+        if (subscriber != null && (int) WIP.getAndAdd(this, 1) == 0) {
+            deliveryExecutor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        do {
+            deliver();
+            missed = (int) WIP.getAndAdd(this, -missed) - missed;
+        } while (missed != 0);
+    }
+
+    private void deliver() {
+        Subscriber<? super ByteBuffer> target = subscriber;
+        if (target == null || cancelled || completed) {
+            return;
+        }
+
+        Throwable error = requestError;
+        if (error != null) {
+            completed = true;
+            target.onError(error);
+            return;
+        }
+
+        if (deliveryBuffer == null) {
+            deliveryBuffer = ByteBuffer.allocateDirect(maxFrameSize);
+        }
+
+        while ((long) REQUESTED.getVolatile(this) > 0 && !cancelled) {
+            if (!lifetime.tryAcquire()) {
+                break;
+            }
+
+            boolean polled;
+            try {
+                polled = poll(deliveryBuffer);
+            } finally {
+                lifetime.release();
+            }
+
+            if (!polled) {
+                break;
+            }
+
+            if ((long) REQUESTED.getVolatile(this) != Long.MAX_VALUE) {
+                REQUESTED.getAndAdd(this, -1L);
+            }
+            target.onNext(deliveryBuffer);
+        }
+
+        if (lifetime.isClosed() && !cancelled) {
+            completed = true;
+            target.onComplete();
+        }
+    }
+
+    private boolean poll(@NonNull ByteBuffer target) {
+        MemorySegment targetSegment = MemorySegment.ofBuffer(target.clear());
+        while (true) {
+            long currentHead = (long) HEAD.getAcquire(this);
+            if (currentHead == (long) TAIL.getAcquire(this)) {
+                return false;
+            }
+
+            // The producer may overwrite this slot after dropping it, the exchange below then fails and we retry
+            long offset = (currentHead & mask) * slotSize;
+            int length = Math.min(ring.get(JAVA_INT, offset), maxFrameSize);
+            MemorySegment.copy(ring, offset + HEADER_SIZE, targetSegment, 0, length);
+
+            if ((long) HEAD.compareAndExchange(this, currentHead, currentHead + 1) == currentHead) {
+                target.limit(length);
+                return true;
+            }
+        }
+    }
+
+    private final class RingSubscription implements Subscription {
+        @Override
+        public void request(long n) {
+            // Signalled by the delivery loop, onError must not run concurrently with onNext
+            if (n <= 0) {
+                requestError = new IllegalArgumentException("Requested frames must be positive, provided " + n);
+                signal();
+                return;
+            }
+
+            long current;
+            long next;
+            do {
+                current = (long) REQUESTED.getVolatile(UserFrameStream.this);
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!REQUESTED.compareAndSet(UserFrameStream.this, current, next));
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static final class NoopSubscription implements Subscription {
+        @Override
+        public void request(long n) {}
+
+        @Override
+        public void cancel() {}
+    }
+}
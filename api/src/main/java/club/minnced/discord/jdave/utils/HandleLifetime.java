@@ -0,0 +1,68 @@
+package club.minnced.discord.jdave.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import org.jspecify.annotations.NonNull;
+
+// Lock-free reference count for a native handle. Media threads acquire the handle around every native call,
+// close() only marks it as closed and the destroy action runs once the last in-flight call has released it.
+public final class HandleLifetime {
+    private static final int CLOSED = Integer.MIN_VALUE;
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(HandleLifetime.class, "state", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Runnable destroy;
+    // Sign bit marks the handle as closed, the remaining bits count in-flight users
+    @SuppressWarnings("unused")
+    private volatile int state;
+
+    public HandleLifetime(@NonNull Runnable destroy) {
+        this.destroy = destroy;
+    }
+
+    // Returns false if the handle is already closed, otherwise release() must be called afterwards
+    public boolean tryAcquire() {
+        int current = (int) STATE.getVolatile(this);
+        while (current >= 0) {
+            int witness = (int) STATE.compareAndExchange(this, current, current + 1);
+            if (witness == current) {
+                return true;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
+    public void release() {
+        int previous = (int) STATE.getAndAdd(this, -1);
+        if (previous == (CLOSED | 1)) {
+            destroy.run();
+        }
+    }
+
+    public boolean isClosed() {
+        return (int) STATE.getVolatile(this) < 0;
+    }
+
+    // Destroys immediately if nothing is in flight, otherwise the last release() does
+    public void close() {
+        int current = (int) STATE.getVolatile(this);
+        while (current >= 0) {
+            int witness = (int) STATE.compareAndExchange(this, current, current | CLOSED);
+            if (witness == current) {
+                if (current == 0) {
+                    destroy.run();
+                }
+                return;
+            }
+            current = witness;
+        }
+    }
+}
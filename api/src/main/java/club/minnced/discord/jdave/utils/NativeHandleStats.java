@@ -0,0 +1,27 @@
+package club.minnced.discord.jdave.utils;
+
+import java.util.Map;
+import org.jspecify.annotations.NonNull;
+
+// Process wide view of the native handles, leaked handles stay live since their memory is never freed
+public record NativeHandleStats(
+        @NonNull Map<NativeHandleType, Long> liveHandles,
+        @NonNull Map<NativeHandleType, Long> leakedHandles,
+        long bufferBytes,
+        long estimatedBytes) {
+    public long liveHandles(@NonNull NativeHandleType type) {
+        return liveHandles.getOrDefault(type, 0L);
+    }
+
+    public long leakedHandles(@NonNull NativeHandleType type) {
+        return leakedHandles.getOrDefault(type, 0L);
+    }
+
+    public long totalLeakedHandles() {
+        long total = 0;
+        for (long leaked : leakedHandles.values()) {
+            total += leaked;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,23 @@
+package club.minnced.discord.jdave.utils;
+
+// Native allocations owned by jdave. The sizes are rough per-handle estimates for the footprint, libdave does not
+// report its own allocations. Buffers are counted by their exact size instead.
+public enum NativeHandleType {
+    SESSION(64 * 1024),
+    ENCRYPTOR(16 * 1024),
+    DECRYPTOR(8 * 1024),
+    KEY_RATCHET(1024),
+    COMMIT_RESULT(1024),
+    WELCOME_RESULT(1024),
+    BUFFER(0);
+
+    private final long estimatedBytes;
+
+    NativeHandleType(long estimatedBytes) {
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+}
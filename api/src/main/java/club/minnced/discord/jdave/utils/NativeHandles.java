@@ -0,0 +1,166 @@
+package club.minnced.discord.jdave.utils;
+
+import java.lang.ref.Cleaner;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Accounting of every native handle jdave allocates. Handles owned by a Java object are registered with a Cleaner,
+// if the owner becomes unreachable without being closed the handle is logged as leaked. Short-lived results and
+// buffers are freed in the same call that allocates them and are only counted.
+public final class NativeHandles {
+    private static final Logger log = LoggerFactory.getLogger(NativeHandles.class);
+
+    // Captures a stack trace whenever a handle is tracked, so leak warnings can point at the allocation
+    public static final String ALLOCATION_SITES_PROPERTY = "jdave.handles.allocationSites";
+    // Set to false to skip the Cleaner registration, handles are still counted
+    public static final String LEAK_DETECTION_PROPERTY = "jdave.handles.leakDetection";
+
+    private static final NativeHandleType[] TYPES = NativeHandleType.values();
+    private static final LongAdder[] ALLOCATED = adders();
+    private static final LongAdder[] FREED = adders();
+    private static final LongAdder[] LEAKED = adders();
+    private static final LongAdder BUFFER_BYTES = new LongAdder();
+    private static final boolean LEAK_DETECTION =
+            !"false".equalsIgnoreCase(System.getProperty(LEAK_DETECTION_PROPERTY));
+
+    private static volatile boolean allocationSites = Boolean.getBoolean(ALLOCATION_SITES_PROPERTY);
+
+    private NativeHandles() {}
+
+    public static void setAllocationSites(boolean enabled) {
+        allocationSites = enabled;
+    }
+
+    public static boolean isAllocationSites() {
+        return allocationSites;
+    }
+
+    // Tracks a handle owned by the given object, which has to call Handle#free once the native handle is destroyed
+    @NonNull
+    public static Handle track(@NonNull Object owner, @NonNull NativeHandleType type) {
+        ALLOCATED[type.ordinal()].increment();
+        HandleState state = new HandleState(type, allocationSites ? new AllocationSite(type) : null);
+        Cleaner.Cleanable cleanable = LEAK_DETECTION ? CleanerHolder.CLEANER.register(owner, state) : null;
+        return new Handle(state, cleanable);
+    }
+
+    public static void allocated(@NonNull NativeHandleType type) {
+        ALLOCATED[type.ordinal()].increment();
+    }
+
+    public static void freed(@NonNull NativeHandleType type) {
+        FREED[type.ordinal()].increment();
+    }
+
+    // Buffers handed out by libdave, which are released with LibDave.free
+    public static void allocatedBuffer(long bytes) {
+        allocated(NativeHandleType.BUFFER);
+        BUFFER_BYTES.add(bytes);
+    }
+
+    public static void freedBuffer(long bytes) {
+        freed(NativeHandleType.BUFFER);
+        BUFFER_BYTES.add(-bytes);
+    }
+
+    public static long getLiveHandles(@NonNull NativeHandleType type) {
+        return ALLOCATED[type.ordinal()].sum() - FREED[type.ordinal()].sum();
+    }
+
+    // Estimated native memory held through jdave by the whole process, useful to size containers and spot slow leaks
+    public static long getEstimatedBytes() {
+        long bytes = BUFFER_BYTES.sum();
+        for (NativeHandleType type : TYPES) {
+            bytes += getLiveHandles(type) * type.getEstimatedBytes();
+        }
+        return bytes;
+    }
+
+    @NonNull
+    public static NativeHandleStats snapshot() {
+        Map<NativeHandleType, Long> live = new EnumMap<>(NativeHandleType.class);
+        Map<NativeHandleType, Long> leaked = new EnumMap<>(NativeHandleType.class);
+        for (NativeHandleType type : TYPES) {
+            live.put(type, getLiveHandles(type));
+            leaked.put(type, LEAKED[type.ordinal()].sum());
+        }
+        return new NativeHandleStats(Map.copyOf(live), Map.copyOf(leaked), BUFFER_BYTES.sum(), getEstimatedBytes());
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[TYPES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    public static final class Handle {
+        private final HandleState state;
+        private final Cleaner.@Nullable Cleanable cleanable;
+
+        private Handle(@NonNull HandleState state, Cleaner.@Nullable Cleanable cleanable) {
+            this.state = state;
+            this.cleanable = cleanable;
+        }
+
+        // Call after destroying the native handle, repeated calls are ignored
+        public void free() {
+            if (state.released.compareAndSet(false, true)) {
+                FREED[state.type.ordinal()].increment();
+            }
+            // Deregisters from the cleaner, the action is a no-op now that the handle is released
+            if (cleanable != null) {
+                cleanable.clean();
+            }
+        }
+    }
+
+    // Must not reference the owner, otherwise it never becomes phantom reachable
+    private static final class HandleState implements Runnable {
+        private final NativeHandleType type;
+        private final @Nullable AllocationSite site;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private HandleState(@NonNull NativeHandleType type, @Nullable AllocationSite site) {
+            this.type = type;
+            this.site = site;
+        }
+
+        @Override
+        public void run() {
+            // The native memory is not freed, the owner may have shared the handle with code we cannot see
+            if (released.compareAndSet(false, true)) {
+                LEAKED[type.ordinal()].increment();
+                if (site != null) {
+                    log.warn("Native {} handle became unreachable without being closed", type, site);
+                } else {
+                    log.warn(
+                            "Native {} handle became unreachable without being closed, set -D{}=true to log where it"
+                                    + " was allocated",
+                            type,
+                            ALLOCATION_SITES_PROPERTY);
+                }
+            }
+        }
+    }
+
+    private static final class AllocationSite extends Throwable {
+        private static final long serialVersionUID = 1L;
+
+        private AllocationSite(@NonNull NativeHandleType type) {
+            super(type + " handle allocated here", null, false, true);
+        }
+    }
+
+    // Only starts the cleaner thread once the first handle is tracked
+    private static final class CleanerHolder {
+        private static final Cleaner CLEANER = Cleaner.create();
+    }
+}
@@ -1,23 +1,151 @@
 package club.minnced.discord.jdave.utils;
 
 import club.minnced.discord.jdave.ffi.LibDaveBindingException;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.foreign.Arena;
 import java.lang.foreign.SymbolLookup;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
 import java.util.Locale;
+import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class NativeLibraryLoader {
+    private static final Logger log = LoggerFactory.getLogger(NativeLibraryLoader.class);
+
+    // Path to a preinstalled library, skips extraction entirely
+    public static final String LIBRARY_PATH_PROPERTY = "jdave.library.path";
+    // Look for a preinstalled library in java.library.path before extracting the bundled one
+    public static final String USE_JAVA_LIBRARY_PATH_PROPERTY = "jdave.library.useJavaLibraryPath";
+    // Directory for extracted libraries, defaults to jdave-natives-<user> in java.io.tmpdir
+    public static final String CACHE_DIRECTORY_PROPERTY = "jdave.library.cacheDir";
+
+    // Set by native-image, "runtime" while running as a native executable
+    private static final String IMAGE_CODE_PROPERTY = "org.graalvm.nativeimage.imagecode";
+
+    private static final String HASH_SUFFIX = ".sha256";
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+    // Partial extractions of crashed processes and libraries of other versions are removed once they have not been
+    // used for this long, another process may just be about to load a library it extracted or verified
+    private static final Duration STALE_FILE_AGE = Duration.ofHours(1);
+
     @NonNull
     public static NativeLibrary getNativeLibrary() {
         return resolveLibrary("dave");
     }
 
+    // Resolves the library to load: the configured override, a preinstalled copy, or the cached extraction
+    @NonNull
+    public static Path getLibraryPath() {
+        String configuredPath = System.getProperty(LIBRARY_PATH_PROPERTY);
+        if (configuredPath != null) {
+            Path path = Path.of(configuredPath);
+            if (!Files.isRegularFile(path)) {
+                throw new LibDaveBindingException(
+                        "Library configured by " + LIBRARY_PATH_PROPERTY + " does not exist: " + path);
+            }
+            return path;
+        }
+
+        NativeLibrary nativeLibrary = getNativeLibrary();
+        if (isNativeImage()) {
+            Path shipped = findNextToExecutable(nativeLibrary);
+            if (shipped != null) {
+                log.debug("Using library next to the native executable {}", shipped);
+                return shipped;
+            }
+        }
+
+        if (Boolean.getBoolean(USE_JAVA_LIBRARY_PATH_PROPERTY)) {
+            Path installed = findOnJavaLibraryPath(nativeLibrary);
+            if (installed != null) {
+                log.debug("Using preinstalled library {}", installed);
+                return installed;
+            }
+        }
+
+        Path cacheDirectory = getCacheDirectory();
+        if (System.getProperty(CACHE_DIRECTORY_PROPERTY) == null && !isPrivateDirectory(cacheDirectory)) {
+            // Someone else created the shared default first, never load anything from it
+            log.warn("Library cache {} is not private to this user, extracting to a new directory", cacheDirectory);
+            cacheDirectory = createPrivateTemporaryDirectory();
+        }
+        return extractLibrary(cacheDirectory);
+    }
+
+    // Native executables still contain the bundled library as a resource, but can ship it next to the executable
+    // instead to skip the extraction on startup
+    public static boolean isNativeImage() {
+        return "runtime".equals(System.getProperty(IMAGE_CODE_PROPERTY));
+    }
+
+    @NonNull
+    public static Path getCacheDirectory() {
+        String configured = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+        if (configured != null) {
+            return Path.of(configured);
+        }
+
+        String user = System.getProperty("user.name", "").replaceAll("[^A-Za-z0-9._-]", "_");
+        return Path.of(System.getProperty("java.io.tmpdir"), "jdave-natives-" + user);
+    }
+
+    // Extracts the bundled library into the cache directory, named by its content hash.
+    // Later starts find the same file and reuse it, other versions are deleted once no process used them for a while.
+    // The directory must be owned by the current user and not writable by anyone else.
+    @NonNull
+    public static Path extractLibrary(@NonNull Path cacheDirectory) {
+        NativeLibrary nativeLibrary = getNativeLibrary();
+        String resourcePath = nativeLibrary.resourcePath();
+        OperatingSystem os = nativeLibrary.os();
+
+        if (!isPrivateDirectory(cacheDirectory)) {
+            throw new LibDaveBindingException("Refusing to use library cache " + cacheDirectory
+                    + ", it is owned by another user or writable by others");
+        }
+
+        try {
+            ContentHash expected = readContentHash(resourcePath);
+            String prefix = os.getLibraryPrefix() + nativeLibrary.libraryName() + "-";
+            String suffix = "." + os.getLibraryExtension();
+            Path target = cacheDirectory.resolve(prefix + expected.hash().substring(0, 16) + suffix);
+
+            if (!isCached(target, expected)) {
+                extract(resourcePath, expected, target);
+            } else {
+                log.debug("Reusing cached library {}", target);
+            }
+
+            deleteStaleLibraries(cacheDirectory, target, prefix, suffix);
+            return target;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new LibDaveBindingException(e);
+        }
+    }
+
+    // Extracts into a new temporary directory on every call, prefer getLibraryPath
+    @Deprecated
     @NonNull
     public static Path createTemporaryFile() {
         NativeLibrary nativeLibrary = getNativeLibrary();
@@ -46,10 +174,260 @@ public class NativeLibraryLoader {
 
     @NonNull
     public static SymbolLookup getSymbolLookup() {
-        Path tempFile = createTemporaryFile();
-        return SymbolLookup.libraryLookup(tempFile, Arena.global());
+        return SymbolLookup.libraryLookup(getLibraryPath(), Arena.global());
+    }
+
+    @Nullable
+    private static Path findOnJavaLibraryPath(@NonNull NativeLibrary nativeLibrary) {
+        String fileName = nativeLibrary.os().getLibraryName(nativeLibrary.libraryName());
+        String libraryPath = System.getProperty("java.library.path", "");
+        for (String directory : libraryPath.split(File.pathSeparator)) {
+            if (directory.isEmpty()) {
+                continue;
+            }
+
+            Path candidate = Path.of(directory, fileName);
+            if (Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Path findNextToExecutable(@NonNull NativeLibrary nativeLibrary) {
+        String fileName = nativeLibrary.os().getLibraryName(nativeLibrary.libraryName());
+        Path executable = ProcessHandle.current().info().command().map(Path::of).orElse(null);
+        if (executable == null || executable.getParent() == null) {
+            return null;
+        }
+
+        Path candidate = executable.getParent().resolve(fileName);
+        return Files.isRegularFile(candidate) ? candidate : null;
     }
 
+    // Prefers the hash generated at build time, only hashes the library itself if it is missing
+    @NonNull
+    private static ContentHash readContentHash(@NonNull String resourcePath)
+            throws IOException, NoSuchAlgorithmException {
+        try (InputStream hashFile = NativeLibraryLoader.class.getResourceAsStream(resourcePath + HASH_SUFFIX)) {
+            if (hashFile != null) {
+                String[] parts = new String(hashFile.readAllBytes(), StandardCharsets.US_ASCII)
+                        .trim()
+                        .split(" ");
+                return new ContentHash(parts[0], Long.parseLong(parts[1]));
+            }
+        }
+
+        try (InputStream library = openLibrary(resourcePath)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size = new DigestInputStream(library, digest).transferTo(OutputStream.nullOutputStream());
+            return new ContentHash(HexFormat.of().formatHex(digest.digest()), size);
+        }
+    }
+
+    private static void extract(@NonNull String resourcePath, @NonNull ContentHash expected, @NonNull Path target)
+            throws IOException, NoSuchAlgorithmException {
+        Path tempFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream library = new DigestInputStream(openLibrary(resourcePath), digest);
+                    OutputStream output = Files.newOutputStream(tempFile)) {
+                library.transferTo(output);
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            if (!hash.equals(expected.hash())) {
+                throw new LibDaveBindingException(
+                        "Extracted library does not match its content hash " + expected.hash() + ", got " + hash);
+            }
+
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                log.debug("Extracted library to {}", target);
+            } catch (IOException e) {
+                // Another process extracted the same library concurrently and may already have it loaded
+                if (!matches(target, expected)) {
+                    throw e;
+                }
+            }
+            writeRecord(target, expected);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // The record next to the library holds its hash, size and modification time as of the extraction, a library
+    // that still matches it is reused without hashing it again. Only a missing or outdated record costs a full hash.
+    private static boolean isCached(@NonNull Path library, @NonNull ContentHash expected)
+            throws IOException, NoSuchAlgorithmException {
+        if (!Files.isRegularFile(library) || Files.size(library) != expected.size()) {
+            return false;
+        }
+
+        Path record = recordOf(library);
+        if (Files.isRegularFile(record) && Files.readString(record).trim().equals(describe(library, expected))) {
+            markUsed(record);
+            return true;
+        }
+
+        if (!matches(library, expected)) {
+            return false;
+        }
+        writeRecord(library, expected);
+        return true;
+    }
+
+    private static void writeRecord(@NonNull Path library, @NonNull ContentHash expected) throws IOException {
+        Path record = recordOf(library);
+        Path tempFile = Files.createTempFile(record.getParent(), record.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(tempFile, describe(library, expected) + "\n");
+            Files.move(tempFile, record, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @NonNull
+    private static String describe(@NonNull Path library, @NonNull ContentHash expected) throws IOException {
+        long modified = Files.getLastModifiedTime(library).to(TimeUnit.NANOSECONDS);
+        return expected.hash() + " " + expected.size() + " " + modified;
+    }
+
+    @NonNull
+    private static Path recordOf(@NonNull Path library) {
+        return library.resolveSibling(library.getFileName() + HASH_SUFFIX);
+    }
+
+    // Reusing a library refreshes its record, which keeps other processes from deleting the library as stale
+    private static void markUsed(@NonNull Path record) {
+        try {
+            Files.setLastModifiedTime(record, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            log.debug("Could not mark cached library {} as used", record, e);
+        }
+    }
+
+    // Best effort, libraries still loaded by another process cannot be deleted on every platform
+    private static void deleteStaleLibraries(
+            @NonNull Path cacheDirectory, @NonNull Path current, @NonNull String prefix, @NonNull String suffix) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(cacheDirectory, prefix + "*")) {
+            Instant cutoff = Instant.now().minus(STALE_FILE_AGE);
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                boolean stale;
+                if (name.endsWith(suffix)) {
+                    // Last used as of the record, the library itself for libraries extracted without one
+                    Path record = recordOf(entry);
+                    Path lastUse = Files.exists(record) ? record : entry;
+                    stale = !entry.equals(current) && isOlderThan(lastUse, cutoff);
+                } else if (name.endsWith(suffix + HASH_SUFFIX)) {
+                    // Orphaned records, the library is deleted together with its record
+                    Path library = entry.resolveSibling(name.substring(0, name.length() - HASH_SUFFIX.length()));
+                    stale = !Files.exists(library) && isOlderThan(entry, cutoff);
+                } else {
+                    stale = name.endsWith(".tmp") && isOlderThan(entry, cutoff);
+                }
+
+                if (stale) {
+                    delete(entry);
+                    if (name.endsWith(suffix)) {
+                        delete(recordOf(entry));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Could not clean up library cache {}", cacheDirectory, e);
+        }
+    }
+
+    private static boolean isOlderThan(@NonNull Path file, @NonNull Instant cutoff) throws IOException {
+        return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+    }
+
+    private static void delete(@NonNull Path file) {
+        try {
+            if (Files.deleteIfExists(file)) {
+                log.debug("Deleted stale library file {}", file);
+            }
+        } catch (IOException e) {
+            log.debug("Could not delete stale library file {}", file, e);
+        }
+    }
+
+    private static boolean matches(@NonNull Path file, @NonNull ContentHash expected)
+            throws IOException, NoSuchAlgorithmException {
+        if (!Files.isRegularFile(file) || Files.size(file) != expected.size()) {
+            return false;
+        }
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream library = new DigestInputStream(Files.newInputStream(file), digest)) {
+            library.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest()).equals(expected.hash());
+    }
+
+    // Creates a missing directory accessible only by the current user. An existing directory has to be owned by the
+    // current user and must not be writable by group or others, otherwise another local user could plant a library.
+    private static boolean isPrivateDirectory(@NonNull Path directory) {
+        try {
+            boolean posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+            if (posix) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            } else {
+                Files.createDirectories(directory);
+            }
+
+            if (!Files.getOwner(directory).equals(getCurrentUser())) {
+                return false;
+            }
+
+            if (posix) {
+                Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory);
+                return !permissions.contains(PosixFilePermission.GROUP_WRITE)
+                        && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new LibDaveBindingException(e);
+        }
+    }
+
+    // The owner of a file we just created, user.name does not always resolve to a principal
+    @NonNull
+    private static UserPrincipal getCurrentUser() throws IOException {
+        Path probe = Files.createTempFile("jdave-owner", ".tmp");
+        try {
+            return Files.getOwner(probe);
+        } finally {
+            Files.deleteIfExists(probe);
+        }
+    }
+
+    @NonNull
+    private static Path createPrivateTemporaryDirectory() {
+        try {
+            // Owner only on POSIX file systems
+            return Files.createTempDirectory("jdave");
+        } catch (IOException e) {
+            throw new LibDaveBindingException(e);
+        }
+    }
+
+    @NonNull
+    private static InputStream openLibrary(@NonNull String resourcePath) {
+        InputStream library = NativeLibraryLoader.class.getResourceAsStream(resourcePath);
+        if (library == null) {
+            throw new LibDaveBindingException(
+                    "Could not find resource for current platform. Looked for " + resourcePath);
+        }
+        return library;
+    }
+
+    private record ContentHash(@NonNull String hash, long size) {}
+
     @NonNull
     public static NativeLibrary resolveLibrary(@NonNull String baseName) {
         return resolveLibrary(baseName, System.getProperty("os.name"), System.getProperty("os.arch"));
@@ -0,0 +1,57 @@
+plugins { alias(libs.plugins.jmh) }
+
+dependencies {
+    jmh(project(":native"))
+    jmh(libs.jmh.core)
+    jmhAnnotationProcessor(libs.jmh.generator)
+}
+
+jmh {
+    jvmArgsAppend = listOf("--enable-native-access=ALL-UNNAMED")
+
+    // Narrow down runs with -PjmhIncludes=Transition
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes = listOf(it) }
+
+    // Libraries for NativeProfileBenchmark, e.g. -PjmhLibraries=default/libdave.so,release/libdave.so
+    providers.gradleProperty("jmhLibraries").orNull?.let { libraries ->
+        benchmarkParameters.put("library", objects.listProperty<String>().value(libraries.split(",")))
+    }
+
+    // Allocation per operation and the native footprint are part of every result, -PjmhProfilers= turns them off again
+    profilers = providers.gradleProperty("jmhProfilers")
+        .getOrElse("gc,jdave.benchmarks.NativeFootprintProfiler")
+        .split(",")
+        .filter { it.isNotBlank() }
+
+    // Name results per commit to compare runs, e.g. -PjmhResultName=$(git rev-parse --short HEAD)
+    val resultName = providers.gradleProperty("jmhResultName").getOrElse("results")
+    resultsFile = layout.buildDirectory.file("results/jmh/$resultName.json")
+    resultFormat = "JSON"
+}
+
+// AOT cache of the training workload, only valid for the exact classpath it was trained with
+val aotCache = layout.buildDirectory.file("aot/jdave.aot")
+
+val aotTrain by
+    tasks.registering(JavaExec::class) {
+        group = "benchmark"
+        description = "Runs the training workload and writes an AOT cache for it"
+
+        classpath = sourceSets["jmh"].runtimeClasspath
+        mainClass = "jdave.benchmarks.AotTraining"
+        jvmArgs("--enable-native-access=ALL-UNNAMED", "-XX:AOTCacheOutput=${aotCache.get().asFile}")
+        outputs.file(aotCache)
+
+        doFirst { aotCache.get().asFile.parentFile.mkdirs() }
+    }
+
+val aotStartupBenchmark by
+    tasks.registering(JavaExec::class) {
+        group = "benchmark"
+        description = "Compares time to the first frame of a new JVM with and without the AOT cache"
+        dependsOn(aotTrain)
+
+        classpath = sourceSets["jmh"].runtimeClasspath
+        mainClass = "jdave.benchmarks.StartupBenchmark"
+        args(aotCache.get().asFile.absolutePath, providers.gradleProperty("startupRuns").getOrElse("10"))
+    }
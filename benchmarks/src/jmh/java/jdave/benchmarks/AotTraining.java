@@ -0,0 +1,20 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.manager.DaveWarmUp;
+
+// Training run for an AOT cache, runs the warm-up workload once:
+//   java -XX:AOTCacheOutput=jdave.aot -cp <classpath> jdave.benchmarks.AotTraining [frames]
+// Applications start with -XX:AOTCache=jdave.aot and the same classpath to skip class loading, linking and the FFM
+// downcall setup of these paths. Use the aotTrain task, which sets this up for the benchmark classpath.
+public final class AotTraining {
+    private static final int DEFAULT_FRAMES = 2000;
+
+    private AotTraining() {}
+
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FRAMES;
+        long start = System.nanoTime();
+        DaveWarmUp.warmUp(frames);
+        System.out.printf("Training workload finished in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,77 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveCryptoThread;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.SpinWaitStrategy;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Per-frame latency of a direct encrypt call against the hand-off to a dedicated crypto thread.
+// SampleTime reports the p50/p99/p99.9 percentiles, the tail is what the hand-off is meant to flatten.
+// The encryptor runs in passthrough mode since there is no real MLS group, so the numbers are dominated by the
+// hand-off itself rather than AES-GCM.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptoThreadBenchmark {
+    private static final int OPUS_FRAME_SIZE = 160;
+
+    @Param({"DIRECT", "BUSY_SPIN", "SPIN_THEN_YIELD"})
+    String path;
+
+    private DaveSessionManager manager;
+    private DaveCryptoThread cryptoThread;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        manager = DaveSessionManager.create(random.nextLong(), 42L, new NoopCallbacks());
+        manager.onSelectProtocolAck(0);
+
+        if (!path.equals("DIRECT")) {
+            cryptoThread = DaveCryptoThread.start(
+                    "jdave-crypto-bench",
+                    SpinWaitStrategy.valueOf(path),
+                    DaveCryptoThread.DEFAULT_QUEUE_CAPACITY,
+                    null);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (cryptoThread != null) {
+            cryptoThread.close();
+        }
+        manager.close();
+    }
+
+    @Benchmark
+    public Object encrypt(Frame frame) {
+        frame.input.rewind();
+        frame.output.clear();
+        if (cryptoThread == null) {
+            return manager.encrypt(DaveMediaType.AUDIO, 1, frame.input, frame.output);
+        }
+        return cryptoThread.encrypt(manager, DaveMediaType.AUDIO, 1, frame.input, frame.output);
+    }
+
+    @State(Scope.Thread)
+    public static class Frame {
+        ByteBuffer input;
+        ByteBuffer output;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            byte[] frame = new byte[OPUS_FRAME_SIZE];
+            new Random(7).nextBytes(frame);
+            input = ByteBuffer.allocateDirect(OPUS_FRAME_SIZE).put(frame).flip();
+            output = ByteBuffer.allocateDirect(OPUS_FRAME_SIZE * 2);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package jdave.benchmarks;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import club.minnced.discord.jdave.DaveDecryptor;
+import club.minnced.discord.jdave.DaveEncryptor;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.DaveSessionImpl;
+import club.minnced.discord.jdave.ffi.LibDaveEncryptorBinding;
+import club.minnced.discord.jdave.utils.NativeLibraryLoader;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Per-frame cost of DaveEncryptor and DaveDecryptor by frame size and buffer kind, run with -PjmhIncludes=MediaCrypto.
+// Throughput and sampled latency are reported together, gc.alloc.rate.norm of the gc profiler is the garbage per frame.
+// Frames run in passthrough mode, which covers the binding, the frame copy and the result handling, just not the
+// AES-GCM transform. NativeProfileBenchmark measures keyed frames of a real MLS group.
+// Heap buffers cannot be passed to a regular downcall, the DaveEncryptor path stages them through direct buffers as
+// callers have to, the raw binding paths use a critical downcall which may access the heap directly.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MediaCryptoBenchmark {
+    private static final Linker LINKER = Linker.nativeLinker();
+    // DAVEEncryptorResultCode daveEncryptorEncrypt(DAVEEncryptorHandle encryptor, DAVEMediaType mediaType,
+    // uint32_t ssrc, const uint8_t* frame, size_t frameLength, uint8_t* encryptedFrame, size_t encryptedFrameCapacity,
+    // size_t* bytesWritten), size_t is a long on the 64-bit platforms this runs on
+    private static final FunctionDescriptor ENCRYPT = FunctionDescriptor.of(
+            JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS, JAVA_LONG, ADDRESS, JAVA_LONG, ADDRESS);
+    private static final MethodHandle ENCRYPT_HANDLE = encryptHandle();
+    // Passthrough never logs, a critical call must not upcall into the log sink
+    private static final MethodHandle ENCRYPT_CRITICAL_HANDLE = encryptHandle(Linker.Option.critical(true));
+
+    // An Opus frame at 64 kbps, a video delta frame and a video keyframe
+    @Param({"160", "4096", "65536"})
+    int frameSize;
+
+    @Param({"DIRECT", "HEAP"})
+    BufferKind buffers;
+
+    private DaveSessionImpl session;
+    private DaveEncryptor encryptor;
+    private DaveDecryptor decryptor;
+    private MemorySegment rawEncryptor;
+    private MemorySegment bytesWritten;
+    private ByteBuffer input;
+    private ByteBuffer encrypted;
+    private ByteBuffer decrypted;
+    // Direct copies of the heap buffers for the DaveEncryptor path
+    private ByteBuffer stagingInput;
+    private ByteBuffer stagingOutput;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (LINKER.canonicalLayouts().get("size_t").byteSize() != Long.BYTES) {
+            throw new IllegalStateException("The raw binding benchmarks expect a 64-bit size_t");
+        }
+
+        Random random = new Random(42);
+        session = DaveSessionImpl.create(null);
+        encryptor = DaveEncryptor.create(session, random.nextLong());
+        decryptor = DaveDecryptor.create(random.nextLong(), session);
+        decryptor.prepareTransition(0);
+
+        rawEncryptor = LibDaveEncryptorBinding.createEncryptor();
+        LibDaveEncryptorBinding.setPassthroughMode(rawEncryptor, true);
+        bytesWritten = Arena.ofAuto().allocate(JAVA_LONG);
+
+        int capacity = (int) encryptor.getMaxCiphertextByteSize(DaveMediaType.AUDIO, frameSize) + frameSize;
+        input = buffers.allocate(frameSize);
+        encrypted = buffers.allocate(capacity);
+        decrypted = buffers.allocate(capacity);
+        stagingInput = ByteBuffer.allocateDirect(capacity);
+        stagingOutput = ByteBuffer.allocateDirect(capacity);
+
+        byte[] frame = new byte[frameSize];
+        random.nextBytes(frame);
+        input.put(frame).flip();
+        encrypt();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        LibDaveEncryptorBinding.destroyEncryptor(rawEncryptor);
+        decryptor.close();
+        encryptor.close();
+        session.close();
+    }
+
+    @Benchmark
+    public Object encrypt() {
+        input.rewind();
+        encrypted.clear();
+        if (buffers == BufferKind.DIRECT) {
+            return encryptor.encrypt(DaveMediaType.AUDIO, 1, input, encrypted);
+        }
+
+        stagingInput.clear();
+        stagingInput.put(input).flip();
+        stagingOutput.clear();
+        Object result = encryptor.encrypt(DaveMediaType.AUDIO, 1, stagingInput, stagingOutput);
+        encrypted.put(stagingOutput).flip();
+        return result;
+    }
+
+    @Benchmark
+    public Object decrypt() {
+        encrypted.rewind();
+        decrypted.clear();
+        if (buffers == BufferKind.DIRECT) {
+            return decryptor.decrypt(DaveMediaType.AUDIO, encrypted, decrypted);
+        }
+
+        stagingInput.clear();
+        stagingInput.put(encrypted).flip();
+        stagingOutput.clear();
+        Object result = decryptor.decrypt(DaveMediaType.AUDIO, stagingInput, stagingOutput);
+        decrypted.put(stagingOutput).flip();
+        return result;
+    }
+
+    // The strategy of the bindings, invoke with boxed size_t arguments adapted to the handle type on every call
+    @Benchmark
+    public int encryptInvoke() throws Throwable {
+        MethodHandle handle = buffers == BufferKind.DIRECT ? ENCRYPT_HANDLE : ENCRYPT_CRITICAL_HANDLE;
+        MemorySegment frame = MemorySegment.ofBuffer(input);
+        MemorySegment output = MemorySegment.ofBuffer(encrypted.clear());
+        Object frameLength = frame.byteSize();
+        Object outputCapacity = output.byteSize();
+        return (int) handle.invoke(rawEncryptor, 0, 1, frame, frameLength, output, outputCapacity, bytesWritten);
+    }
+
+    @Benchmark
+    public int encryptInvokeExact() throws Throwable {
+        MemorySegment frame = MemorySegment.ofBuffer(input);
+        MemorySegment output = MemorySegment.ofBuffer(encrypted.clear());
+        if (buffers == BufferKind.DIRECT) {
+            return (int) ENCRYPT_HANDLE.invokeExact(
+                    rawEncryptor, 0, 1, frame, frame.byteSize(), output, output.byteSize(), bytesWritten);
+        }
+        return (int) ENCRYPT_CRITICAL_HANDLE.invokeExact(
+                rawEncryptor, 0, 1, frame, frame.byteSize(), output, output.byteSize(), bytesWritten);
+    }
+
+    private static MethodHandle encryptHandle(Linker.Option... options) {
+        MemorySegment symbol = NativeLibraryLoader.getSymbolLookup().find("daveEncryptorEncrypt").orElseThrow();
+        return LINKER.downcallHandle(symbol, ENCRYPT, options);
+    }
+
+    public enum BufferKind {
+        DIRECT,
+        HEAP;
+
+        ByteBuffer allocate(int capacity) {
+            return this == DIRECT ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveKeyRatchet;
+import club.minnced.discord.jdave.DaveSessionImpl.CommitResult;
+import club.minnced.discord.jdave.ffi.NativeUserRoster;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Latency of the MLS entry points of DaveSessionImpl by group size, run with -PjmhIncludes=MlsControlPlane.
+// Every group is real, see MlsGroup. Besides the committer only one observing member has a session, the others only
+// contributed their key package. Proposals, commits and welcomes add one member and change the session state, so each
+// runs once per iteration on a freshly built group, the gc profiler reports the allocation of that single call.
+// The List overloads copy every user id off-heap on each call, the NativeUserRoster overloads reuse the roster of the
+// session manager. The key package and the key ratchet export run repeatedly on one group per trial.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class MlsControlPlaneBenchmark {
+    @Param({"2", "25", "100", "500", "1000"})
+    int members;
+
+    // A fresh group of the benchmark's size and one member about to be added to it
+    abstract static class GroupState {
+        private final Random random = new Random(42);
+        MlsGroup group;
+        MlsGroup.Joiner joiner;
+        ByteBuffer proposals;
+        List<String> userIds;
+        NativeUserRoster roster;
+
+        void build(int members) {
+            group = MlsGroup.create(random, members, 2);
+            joiner = group.newJoiner(random);
+            proposals = group.propose(List.of(joiner));
+            userIds = group.getUserIds(List.of(joiner));
+            roster = new NativeUserRoster(userIds);
+        }
+
+        void release() {
+            roster.close();
+            joiner.session().close();
+            group.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ProposalState extends GroupState {
+        @Setup(Level.Iteration)
+        public void setup(MlsControlPlaneBenchmark benchmark) {
+            build(benchmark.members);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            release();
+        }
+    }
+
+    // The committer already created and applied its commit, the other members have yet to process it
+    @State(Scope.Thread)
+    public static class CommitState extends GroupState {
+        MlsGroup.CommitWelcome commitWelcome;
+
+        @Setup(Level.Iteration)
+        public void setup(MlsControlPlaneBenchmark benchmark) {
+            build(benchmark.members);
+            commitWelcome = group.commit(proposals, roster);
+            group.getSession(0).processCommit(commitWelcome.commit().duplicate());
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            release();
+        }
+    }
+
+    // One group for the whole trial, for the operations that leave the group unchanged
+    @State(Scope.Thread)
+    public static class MemberState {
+        MlsGroup group;
+        MemorySegment committerId;
+
+        @Setup(Level.Trial)
+        public void setup(MlsControlPlaneBenchmark benchmark) {
+            group = MlsGroup.create(new Random(42), benchmark.members, 2);
+            committerId = Arena.ofAuto().allocateFrom(Long.toUnsignedString(group.getUserId(0)));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            group.close();
+        }
+    }
+
+    // Creates the commit and the welcome
+    @Benchmark
+    public void processProposals(ProposalState state, Blackhole blackhole) {
+        state.group.getSession(0).processProposals(state.proposals.duplicate(), state.roster, blackhole::consume);
+    }
+
+    @Benchmark
+    public void processProposalsList(ProposalState state, Blackhole blackhole) {
+        state.group.getSession(0).processProposals(state.proposals.duplicate(), state.userIds, blackhole::consume);
+    }
+
+    @Benchmark
+    public CommitResult processCommit(CommitState state) {
+        return state.group.getSession(1).processCommit(state.commitWelcome.commit().duplicate());
+    }
+
+    @Benchmark
+    public boolean processWelcome(CommitState state) {
+        return state.joiner.session().processWelcome(state.commitWelcome.welcome().duplicate(), state.roster);
+    }
+
+    @Benchmark
+    public boolean processWelcomeList(CommitState state) {
+        return state.joiner.session().processWelcome(state.commitWelcome.welcome().duplicate(), state.userIds);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public void sendMarshalledKeyPackage(MemberState state, Blackhole blackhole) {
+        state.group.getSession(1).sendMarshalledKeyPackage(blackhole::consume);
+    }
+
+    // Export of the committer's ratchet on the observing member, as done for every sender on each transition
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public long getKeyRatchet(MemberState state) {
+        try (DaveKeyRatchet keyRatchet = DaveKeyRatchet.create(state.group.getSession(1), state.committerId)) {
+            return keyRatchet.getMemorySegment().address();
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveSessionImpl;
+import club.minnced.discord.jdave.DaveSessionImpl.CommitResult;
+import club.minnced.discord.jdave.ffi.LibDave;
+import club.minnced.discord.jdave.ffi.NativeUserRoster;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+// A real MLS group of local libdave sessions, for benchmarks that need keyed frames or real commits.
+// In a call the voice gateway is the external sender of the group and signs every add proposal. Here a Java P-256
+// key stands in for it and signs the proposals the same way. The first member commits them, the others join with the
+// welcome. Members without a session only contribute a key package, the committer still maintains the full tree,
+// which keeps large groups affordable to build.
+final class MlsGroup implements AutoCloseable {
+    private static final int MLS_VERSION = 1;
+    private static final int WIRE_FORMAT_PUBLIC_MESSAGE = 1;
+    private static final int SENDER_MEMBER = 1;
+    private static final int SENDER_EXTERNAL = 2;
+    private static final int CONTENT_TYPE_PROPOSAL = 2;
+    private static final int PROPOSAL_TYPE_ADD = 1;
+    private static final int CREDENTIAL_TYPE_BASIC = 1;
+    private static final int LEAF_NODE_SOURCE_KEY_PACKAGE = 1;
+    private static final int LEAF_NODE_SOURCE_COMMIT = 3;
+    private static final int PROPOSALS_APPEND = 0;
+    private static final byte[] SIGN_LABEL = "MLS 1.0 FramedContentTBS".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EXTERNAL_SENDER_IDENTITY = "jdave-benchmarks".getBytes(StandardCharsets.US_ASCII);
+
+    private final short protocolVersion;
+    private final long groupId;
+    private final KeyPair externalSenderKey;
+    private final ByteBuffer externalSender;
+    // Members with a session, the committer first
+    private final List<DaveSessionImpl> sessions = new ArrayList<>();
+    private final List<String> sessionUserIds = new ArrayList<>();
+    private final List<String> userIds = new ArrayList<>();
+    private long epoch;
+
+    private MlsGroup(@NonNull Random random) {
+        this.protocolVersion = LibDave.getMaxSupportedProtocolVersion();
+        this.groupId = random.nextLong();
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            this.externalSenderKey = generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not create the external sender key", e);
+        }
+
+        TlsWriter sender = new TlsWriter();
+        sender.vector(encodePoint((ECPublicKey) externalSenderKey.getPublic()));
+        sender.u16(CREDENTIAL_TYPE_BASIC);
+        sender.vector(EXTERNAL_SENDER_IDENTITY);
+        this.externalSender = direct(sender.toByteArray());
+    }
+
+    // A group of the given size, of which the first members up to the session count have a session
+    @NonNull
+    static MlsGroup create(@NonNull Random random, int members, int sessions) {
+        if (sessions < 1 || sessions > members) {
+            throw new IllegalArgumentException("Sessions must be between 1 and " + members + ", provided " + sessions);
+        }
+
+        MlsGroup group = new MlsGroup(random);
+        try {
+            String committerId = Long.toUnsignedString(random.nextLong());
+            group.sessions.add(group.newSession(committerId));
+            group.sessionUserIds.add(committerId);
+            group.userIds.add(committerId);
+
+            List<Joiner> joiners = new ArrayList<>(members - 1);
+            for (int i = 1; i < members; i++) {
+                joiners.add(i < sessions ? group.newJoiner(random) : group.newKeyPackage(random));
+            }
+            if (!joiners.isEmpty()) {
+                group.add(joiners);
+            }
+            return group;
+        } catch (RuntimeException e) {
+            group.close();
+            throw e;
+        }
+    }
+
+    short getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    @NonNull
+    DaveSessionImpl getSession(int index) {
+        return sessions.get(index);
+    }
+
+    long getUserId(int index) {
+        return Long.parseUnsignedLong(sessionUserIds.get(index));
+    }
+
+    // Every member of the group, followed by the joiners that are about to be added
+    @NonNull
+    List<String> getUserIds(@NonNull List<Joiner> joiners) {
+        List<String> result = new ArrayList<>(userIds);
+        joiners.forEach(joiner -> result.add(joiner.userId()));
+        return result;
+    }
+
+    // A new session that can join the group once the committer adds its key package
+    @NonNull
+    Joiner newJoiner(@NonNull Random random) {
+        String userId = Long.toUnsignedString(random.nextLong());
+        DaveSessionImpl session = newSession(userId);
+        byte[][] keyPackage = new byte[1][];
+        session.sendMarshalledKeyPackage(buffer -> {
+            keyPackage[0] = new byte[buffer.remaining()];
+            buffer.get(keyPackage[0]);
+        });
+        return new Joiner(userId, session, keyPackage[0]);
+    }
+
+    // Proposals of the external sender adding the joiners, valid for the current epoch of the group
+    @NonNull
+    ByteBuffer propose(@NonNull List<Joiner> joiners) {
+        TlsWriter messages = new TlsWriter();
+        for (Joiner joiner : joiners) {
+            messages.bytes(addProposal(joiner.keyPackage()));
+        }
+
+        TlsWriter proposals = new TlsWriter();
+        proposals.u8(PROPOSALS_APPEND);
+        proposals.vector(messages.toByteArray());
+        return direct(proposals.toByteArray());
+    }
+
+    // The committer's answer to the proposals, which it only applies once it processes its own commit
+    @NonNull
+    CommitWelcome commit(@NonNull ByteBuffer proposals, @NonNull NativeUserRoster roster) {
+        byte[][] result = new byte[1][];
+        sessions.getFirst().processProposals(proposals.duplicate(), roster, commitWelcome -> {
+            result[0] = new byte[commitWelcome.remaining()];
+            commitWelcome.get(result[0]);
+        });
+        if (result[0] == null) {
+            throw new IllegalStateException("Committer rejected the proposals");
+        }
+
+        // The gateway splits the commit from the welcome the same way before relaying them
+        ByteBuffer message = ByteBuffer.wrap(result[0]);
+        int commitLength = commitLength(message.duplicate());
+        ByteBuffer commit = direct(message.slice(0, commitLength));
+        ByteBuffer welcome = direct(message.slice(commitLength, message.remaining() - commitLength));
+        return new CommitWelcome(commit, welcome);
+    }
+
+    // Every session processes the commit, joiners with a session join with the welcome
+    void apply(@NonNull CommitWelcome commitWelcome, @NonNull List<Joiner> joiners) {
+        for (DaveSessionImpl session : sessions) {
+            CommitResult result = session.processCommit(commitWelcome.commit().duplicate());
+            if (!(result instanceof CommitResult.Success)) {
+                throw new IllegalStateException("Member rejected the commit");
+            }
+        }
+
+        List<String> members = getUserIds(joiners);
+        try (NativeUserRoster roster = new NativeUserRoster(members)) {
+            for (Joiner joiner : joiners) {
+                DaveSessionImpl session = joiner.session();
+                if (session != null && !session.processWelcome(commitWelcome.welcome().duplicate(), roster)) {
+                    throw new IllegalStateException("Joiner rejected the welcome");
+                }
+            }
+        }
+
+        for (Joiner joiner : joiners) {
+            if (joiner.session() != null) {
+                sessions.add(joiner.session());
+                sessionUserIds.add(joiner.userId());
+            }
+        }
+        userIds.clear();
+        userIds.addAll(members);
+        epoch++;
+    }
+
+    // Adds the joiners in a single commit
+    void add(@NonNull List<Joiner> joiners) {
+        try (NativeUserRoster roster = new NativeUserRoster(getUserIds(joiners))) {
+            apply(commit(propose(joiners), roster), joiners);
+        }
+    }
+
+    @Override
+    public void close() {
+        sessions.forEach(DaveSessionImpl::close);
+    }
+
+    @NonNull
+    private DaveSessionImpl newSession(@NonNull String userId) {
+        DaveSessionImpl session = DaveSessionImpl.create(null);
+        session.initialize(protocolVersion, groupId, userId);
+        session.setExternalSender(externalSender.duplicate());
+        return session;
+    }
+
+    // A member that never joins, its session is only needed to create the key package
+    @NonNull
+    private Joiner newKeyPackage(@NonNull Random random) {
+        Joiner joiner = newJoiner(random);
+        joiner.session().close();
+        return new Joiner(joiner.userId(), null, joiner.keyPackage());
+    }
+
+    // MLSMessage of a PublicMessage with an Add proposal, signed by the external sender. Proposals of an external
+    // sender carry neither a group context in the signed content nor a membership tag.
+    private byte @NonNull [] addProposal(byte @NonNull [] keyPackage) {
+        TlsWriter content = new TlsWriter();
+        content.vector(ByteBuffer.allocate(Long.BYTES).putLong(0, groupId).array());
+        content.u64(epoch);
+        content.u8(SENDER_EXTERNAL);
+        content.u32(0);
+        content.vector(new byte[0]);
+        content.u8(CONTENT_TYPE_PROPOSAL);
+        content.u16(PROPOSAL_TYPE_ADD);
+        content.bytes(keyPackage);
+        byte[] framedContent = content.toByteArray();
+
+        TlsWriter toBeSigned = new TlsWriter();
+        toBeSigned.u16(MLS_VERSION);
+        toBeSigned.u16(WIRE_FORMAT_PUBLIC_MESSAGE);
+        toBeSigned.bytes(framedContent);
+
+        TlsWriter signContent = new TlsWriter();
+        signContent.vector(SIGN_LABEL);
+        signContent.vector(toBeSigned.toByteArray());
+
+        TlsWriter message = new TlsWriter();
+        message.u16(MLS_VERSION);
+        message.u16(WIRE_FORMAT_PUBLIC_MESSAGE);
+        message.bytes(framedContent);
+        message.vector(sign(signContent.toByteArray()));
+        return message.toByteArray();
+    }
+
+    // DER encoded ECDSA with SHA-256, as the P-256 cipher suite of DAVE expects it
+    private byte @NonNull [] sign(byte @NonNull [] data) {
+        try {
+            Signature signature = Signature.getInstance("SHA256withECDSA");
+            signature.initSign(externalSenderKey.getPrivate());
+            signature.update(data);
+            return signature.sign();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign the proposal", e);
+        }
+    }
+
+    // Uncompressed SEC1 point
+    private static byte @NonNull [] encodePoint(@NonNull ECPublicKey key) {
+        byte[] point = new byte[65];
+        point[0] = 0x04;
+        copyUnsigned(key.getW().getAffineX(), point, 1);
+        copyUnsigned(key.getW().getAffineY(), point, 33);
+        return point;
+    }
+
+    private static void copyUnsigned(@NonNull BigInteger value, byte @NonNull [] target, int offset) {
+        byte[] bytes = value.toByteArray();
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, target, offset + 32 - length, length);
+    }
+
+    // Length of the commit MLSMessage at the start of the committer's output, which is followed by the welcome
+    private static int commitLength(@NonNull ByteBuffer in) {
+        in.getShort();
+        int wireFormat = in.getShort();
+        if (wireFormat != WIRE_FORMAT_PUBLIC_MESSAGE) {
+            throw new IllegalStateException("Expected a public commit, got wire format " + wireFormat);
+        }
+
+        skipVector(in); // group_id
+        in.getLong(); // epoch
+        int senderType = in.get();
+        if (senderType == SENDER_MEMBER) {
+            in.getInt();
+        }
+        skipVector(in); // authenticated_data
+        in.get(); // content_type
+        skipVector(in); // proposals
+        if (in.get() != 0) {
+            skipLeafNode(in);
+            skipVector(in); // path nodes
+        }
+        skipVector(in); // signature
+        skipVector(in); // confirmation_tag
+        if (senderType == SENDER_MEMBER) {
+            skipVector(in); // membership_tag
+        }
+        return in.position();
+    }
+
+    private static void skipLeafNode(@NonNull ByteBuffer in) {
+        skipVector(in); // encryption_key
+        skipVector(in); // signature_key
+        in.getShort(); // credential_type
+        skipVector(in); // identity or certificates
+        for (int i = 0; i < 5; i++) {
+            skipVector(in); // capabilities
+        }
+
+        int source = in.get();
+        if (source == LEAF_NODE_SOURCE_KEY_PACKAGE) {
+            in.getLong(); // not_before
+            in.getLong(); // not_after
+        } else if (source == LEAF_NODE_SOURCE_COMMIT) {
+            skipVector(in); // parent_hash
+        }
+        skipVector(in); // extensions
+        skipVector(in); // signature
+    }
+
+    private static void skipVector(@NonNull ByteBuffer in) {
+        int first = in.get() & 0xFF;
+        int length =
+                switch (first >>> 6) {
+                    case 0 -> first;
+                    case 1 -> (first & 0x3F) << 8 | in.get() & 0xFF;
+                    case 2 -> (first & 0x3F) << 24 | (in.get() & 0xFF) << 16 | (in.getShort() & 0xFFFF);
+                    default -> throw new IllegalStateException("Invalid variable length integer");
+                };
+        in.position(in.position() + length);
+    }
+
+    @NonNull
+    private static ByteBuffer direct(byte @NonNull [] bytes) {
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+
+    @NonNull
+    private static ByteBuffer direct(@NonNull ByteBuffer buffer) {
+        return ByteBuffer.allocateDirect(buffer.remaining()).put(buffer).flip();
+    }
+
+    // The session is null for members that only contribute their key package
+    record Joiner(@NonNull String userId, @Nullable DaveSessionImpl session, byte @NonNull [] keyPackage) {}
+
+    // Direct buffers, which can be passed to libdave as they are
+    record CommitWelcome(@NonNull ByteBuffer commit, @NonNull ByteBuffer welcome) {}
+
+    // Big endian integers and vectors with a variable length prefix, as in the TLS presentation language of MLS
+    private static final class TlsWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        void u8(int value) {
+            out.write(value);
+        }
+
+        void u16(int value) {
+            u8(value >>> 8);
+            u8(value);
+        }
+
+        void u32(int value) {
+            u16(value >>> 16);
+            u16(value);
+        }
+
+        void u64(long value) {
+            u32((int) (value >>> 32));
+            u32((int) value);
+        }
+
+        void bytes(byte @NonNull [] bytes) {
+            out.writeBytes(bytes);
+        }
+
+        void vector(byte @NonNull [] bytes) {
+            int length = bytes.length;
+            if (length < 1 << 6) {
+                u8(length);
+            } else if (length < 1 << 14) {
+                u16(0x4000 | length);
+            } else if (length < 1 << 30) {
+                u32(0x80000000 | length);
+            } else {
+                throw new IllegalArgumentException("Vector too long: " + length);
+            }
+            bytes(bytes);
+        }
+
+        byte @NonNull [] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
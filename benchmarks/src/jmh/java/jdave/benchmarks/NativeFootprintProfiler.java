@@ -0,0 +1,43 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.utils.NativeHandleType;
+import club.minnced.discord.jdave.utils.NativeHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+// Live native handles and the estimated native memory of NativeHandles, sampled at the end of every iteration.
+// These are gauges of what the benchmark state holds, e.g. the sessions of a trial, not allocation per operation.
+public class NativeFootprintProfiler implements InternalProfiler {
+    @Override
+    public String getDescription() {
+        return "Live jdave native handles and their estimated bytes";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {}
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+            BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+        List<ScalarResult> results = new ArrayList<>();
+        for (NativeHandleType type : NativeHandleType.values()) {
+            results.add(new ScalarResult(
+                    "native.live." + type.name().toLowerCase(Locale.ROOT),
+                    NativeHandles.getLiveHandles(type),
+                    "handles",
+                    AggregationPolicy.AVG));
+        }
+        results.add(new ScalarResult(
+                "native.estimatedBytes", NativeHandles.getEstimatedBytes(), "bytes", AggregationPolicy.AVG));
+        return results;
+    }
+}
@@ -0,0 +1,131 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveDecryptor;
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveEncryptor;
+import club.minnced.discord.jdave.DaveEncryptor.DaveEncryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.DaveSessionImpl;
+import club.minnced.discord.jdave.ffi.LibDave;
+import club.minnced.discord.jdave.ffi.NativeUserRoster;
+import club.minnced.discord.jdave.utils.NativeLibraryLoader;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Compares libdave builds, e.g. the default and the release profile with different crypto backends.
+// Each library runs in its own fork, pass them with -PjmhLibraries=/path/a.so,/path/b.so, empty uses the bundled one.
+// Frames are keyed by a real two member group, see MlsGroup, so encrypt and decrypt run through AES-GCM of the
+// backend. A decryptor refuses to decrypt the same frame twice, decryption is only measured as a round trip.
+// The commit adds one member to a fresh group, the key package covers key generation and signing of the cipher suite.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class NativeProfileBenchmark {
+    private static final int OPUS_FRAME_SIZE = 160;
+    private static final int SSRC = 1;
+
+    @Param({""})
+    String library;
+
+    private final Random random = new Random(42);
+    private DaveSessionImpl session;
+    private MlsGroup group;
+    private DaveEncryptor encryptor;
+    private DaveDecryptor decryptor;
+    private ByteBuffer input;
+    private ByteBuffer encrypted;
+    private ByteBuffer decrypted;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Has to happen before the bindings are initialized, which is why every library needs its own fork
+        if (!library.isEmpty()) {
+            System.setProperty(NativeLibraryLoader.LIBRARY_PATH_PROPERTY, library);
+        }
+
+        session = DaveSessionImpl.create(null);
+
+        // The first member sends, the second one receives
+        group = MlsGroup.create(random, 2, 2);
+        encryptor = DaveEncryptor.create(group.getSession(0), group.getUserId(0));
+        encryptor.processTransition(group.getProtocolVersion());
+        decryptor = DaveDecryptor.create(group.getUserId(0), group.getSession(1));
+        decryptor.prepareTransition(group.getProtocolVersion());
+
+        byte[] frame = new byte[OPUS_FRAME_SIZE];
+        random.nextBytes(frame);
+        input = ByteBuffer.allocateDirect(OPUS_FRAME_SIZE).put(frame).flip();
+        encrypted = ByteBuffer.allocateDirect(OPUS_FRAME_SIZE * 2);
+        decrypted = ByteBuffer.allocateDirect(OPUS_FRAME_SIZE * 2);
+
+        // A group that failed to key the frames would silently measure passthrough
+        if (roundTrip() != DaveDecryptResultType.SUCCESS || encrypted.remaining() == OPUS_FRAME_SIZE) {
+            throw new IllegalStateException("Frames are not encrypted by the group");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        decryptor.close();
+        encryptor.close();
+        group.close();
+        session.close();
+    }
+
+    @Benchmark
+    public DaveEncryptResultType encrypt() {
+        return encryptor.encrypt(DaveMediaType.AUDIO, SSRC, input.rewind(), encrypted.clear()).type();
+    }
+
+    @Benchmark
+    public DaveDecryptResultType roundTrip() {
+        encryptor.encrypt(DaveMediaType.AUDIO, SSRC, input.rewind(), encrypted.clear());
+        return decryptor.decrypt(DaveMediaType.AUDIO, encrypted, decrypted.clear()).type();
+    }
+
+    @Benchmark
+    public int keyPackage() {
+        int[] size = new int[1];
+        session.initialize(LibDave.getMaxSupportedProtocolVersion(), random.nextLong(), "1");
+        session.sendMarshalledKeyPackage(keyPackage -> size[0] = keyPackage.remaining());
+        return size[0];
+    }
+
+    // A committer without members and the signed proposal adding the first one
+    @State(Scope.Thread)
+    public static class CommitState {
+        private final Random random = new Random(42);
+        MlsGroup group;
+        MlsGroup.Joiner joiner;
+        ByteBuffer proposals;
+        NativeUserRoster roster;
+
+        @Setup(Level.Invocation)
+        public void setup() {
+            group = MlsGroup.create(random, 1, 1);
+            joiner = group.newJoiner(random);
+            proposals = group.propose(List.of(joiner));
+            roster = new NativeUserRoster(group.getUserIds(List.of(joiner)));
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            roster.close();
+            joiner.session().close();
+            group.close();
+        }
+    }
+
+    // Creates the commit and welcome and applies the commit on the committer
+    @Benchmark
+    public Object commit(CommitState state) {
+        MlsGroup.CommitWelcome commitWelcome = state.group.commit(state.proposals, state.roster);
+        return state.group.getSession(0).processCommit(commitWelcome.commit());
+    }
+}
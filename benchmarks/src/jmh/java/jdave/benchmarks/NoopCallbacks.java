@@ -0,0 +1,19 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.manager.DaveSessionManagerCallbacks;
+import java.nio.ByteBuffer;
+import org.jspecify.annotations.NonNull;
+
+class NoopCallbacks implements DaveSessionManagerCallbacks {
+    @Override
+    public void sendMLSKeyPackage(@NonNull ByteBuffer mlsKeyPackage) {}
+
+    @Override
+    public void sendDaveProtocolReadyForTransition(int transitionId) {}
+
+    @Override
+    public void sendMLSCommitWelcome(@NonNull ByteBuffer commitWelcomeMessage) {}
+
+    @Override
+    public void sendMLSInvalidCommitWelcome(int transitionId) {}
+}
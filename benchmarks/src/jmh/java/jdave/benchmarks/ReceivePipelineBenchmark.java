@@ -0,0 +1,87 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveReceivePipeline;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.DecryptBatch;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Decrypt time of one 20 ms tick by number of speakers and pipeline threads, threads=1 is the inline baseline.
+// Without a real MLS group the decryptors run in passthrough mode, so this measures the fan-out against a frame copy,
+// real AES-GCM frames only make the parallel share larger.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReceivePipelineBenchmark {
+    private static final int OPUS_FRAME_SIZE = 160;
+
+    @Param({"25", "100", "500"})
+    int speakers;
+
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    @Param({"FORK_JOIN", "VIRTUAL"})
+    PoolType pool;
+
+    private DaveSessionManager manager;
+    private DaveReceivePipeline pipeline;
+    private DecryptBatch batch;
+    private long[] userIds;
+    private ByteBuffer[] encrypted;
+    private ByteBuffer[] decrypted;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        userIds = random.longs(speakers).toArray();
+        manager = DaveSessionManager.create(random.nextLong(), 42L, new NoopCallbacks());
+        manager.onSelectProtocolAck(0);
+        manager.addUsers(userIds);
+
+        pipeline = switch (pool) {
+            case FORK_JOIN -> DaveReceivePipeline.withForkJoinPool(manager, threads);
+            case VIRTUAL -> DaveReceivePipeline.withVirtualThreads(manager, threads);
+        };
+
+        batch = new DecryptBatch(speakers);
+        encrypted = new ByteBuffer[speakers];
+        decrypted = new ByteBuffer[speakers];
+        for (int i = 0; i < speakers; i++) {
+            byte[] frame = new byte[OPUS_FRAME_SIZE];
+            random.nextBytes(frame);
+            encrypted[i] = ByteBuffer.allocateDirect(OPUS_FRAME_SIZE).put(frame).flip();
+            decrypted[i] = ByteBuffer.allocateDirect(OPUS_FRAME_SIZE * 2);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pipeline.close();
+        manager.close();
+    }
+
+    @Benchmark
+    public DecryptBatch tick() {
+        batch.clear();
+        for (int i = 0; i < speakers; i++) {
+            encrypted[i].rewind();
+            decrypted[i].clear();
+            batch.add(userIds[i], DaveMediaType.AUDIO, encrypted[i], decrypted[i]);
+        }
+
+        pipeline.decrypt(batch);
+        return batch;
+    }
+
+    public enum PoolType {
+        FORK_JOIN,
+        VIRTUAL,
+    }
+}
@@ -0,0 +1,67 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.DaveSessionMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Transition cost and footprint per session mode.
+// Native memory scales with the number of live decryptors, which each mode allocates or skips. The native.* results
+// of NativeFootprintProfiler are the live handles and estimated bytes of the trial session with all its members,
+// gc.alloc.rate.norm is the heap allocated by a transition or a whole join.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionModeBenchmark {
+    @Param({"100", "1000"})
+    int members;
+
+    @Param({"SEND_AND_RECEIVE", "SEND_ONLY", "RECEIVE_ONLY"})
+    DaveSessionMode mode;
+
+    private DaveSessionManager manager;
+    private long[] userIds;
+    private int transitionId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        userIds = random.longs(members).toArray();
+        manager = createManager(random.nextLong());
+        manager.addUsers(userIds);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.close();
+    }
+
+    @Benchmark
+    public void transition() {
+        int id = ++transitionId;
+        manager.onDaveProtocolPrepareTransition(id, 1);
+        manager.onDaveProtocolExecuteTransition(id);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void joinAndClose() {
+        try (DaveSessionManager joined = createManager(userIds[0] ^ 1)) {
+            joined.addUsers(userIds);
+        }
+    }
+
+    private DaveSessionManager createManager(long selfUserId) {
+        DaveSessionManager manager = DaveSessionManager.create(selfUserId, 42L, new NoopCallbacks(), mode);
+        manager.onSelectProtocolAck(1);
+        manager.onDaveProtocolPrepareTransition(++transitionId, 1);
+        manager.onDaveProtocolExecuteTransition(transitionId);
+        return manager;
+    }
+}
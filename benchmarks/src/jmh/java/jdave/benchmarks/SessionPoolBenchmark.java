@@ -0,0 +1,87 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.DaveSessionOptions;
+import club.minnced.discord.jdave.manager.DaveSessionPool;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Time to the first frame of a voice join, with and without a pre-warmed session pool.
+// The join is split at the gateway round trip between creating the session and SELECT_PROTOCOL_ACK, which the pooled
+// session uses to compute its key package. Both halves are on the critical path of a join or server migration.
+// Without an external sender the first frame is encrypted in passthrough mode, the key package is what is measured.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 100)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionPoolBenchmark {
+    @Param({"false", "true"})
+    boolean pooled;
+
+    // Simulated delay between joining and the protocol acknowledgement, not part of the measurement
+    @Param({"20"})
+    long gatewayRoundTripMillis;
+
+    private final Random random = new Random(42);
+    private DaveSessionPool pool;
+    private DaveSessionOptions options;
+    private ByteBuffer input;
+    private ByteBuffer output;
+
+    private DaveSessionManager created;
+    private DaveSessionManager joined;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        options = DaveSessionOptions.defaults();
+        if (pooled) {
+            pool = DaveSessionPool.create(4, null);
+            options = options.withSessionPool(pool);
+        }
+
+        input = ByteBuffer.allocateDirect(160);
+        output = ByteBuffer.allocateDirect(320);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void join() throws InterruptedException {
+        joined = DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks(), options);
+        // Also gives the pool time to refill, like the time between two joins would
+        Thread.sleep(gatewayRoundTripMillis);
+    }
+
+    @TearDown(Level.Invocation)
+    public void leave() {
+        joined.close();
+        if (created != null) {
+            created.close();
+            created = null;
+        }
+    }
+
+    @Benchmark
+    public DaveSessionManager createSession() {
+        created = DaveSessionManager.create(random.nextLong(), random.nextLong(), new NoopCallbacks(), options);
+        return created;
+    }
+
+    @Benchmark
+    public Object selectProtocolAndFirstFrame() {
+        joined.onSelectProtocolAck(1);
+        input.clear();
+        output.clear();
+        return joined.encrypt(DaveMediaType.AUDIO, 1, input, output);
+    }
+}
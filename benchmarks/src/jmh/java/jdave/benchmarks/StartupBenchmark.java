@@ -0,0 +1,99 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Time to the first encrypted frame of a fresh JVM, with and without the AOT cache of the training workload.
+// Runs each configuration in new JVMs, since a warm JVM says nothing about startup. Use the aotStartupBenchmark task,
+// which trains the cache first, the cache is only valid for the exact classpath it was trained with.
+public final class StartupBenchmark {
+    private static final String FIRST_FRAME = "first-frame ";
+
+    private StartupBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child")) {
+            runChild();
+            return;
+        }
+
+        Path aotCache = Path.of(args[0]);
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        if (!Files.isRegularFile(aotCache)) {
+            throw new IllegalArgumentException("AOT cache does not exist: " + aotCache);
+        }
+
+        report("without AOT cache", measure(null, runs));
+        report("with AOT cache", measure(aotCache, runs));
+    }
+
+    private static void runChild() {
+        long start = System.nanoTime();
+        ByteBuffer input = ByteBuffer.allocateDirect(160);
+        ByteBuffer output = ByteBuffer.allocateDirect(320);
+
+        try (DaveSessionManager manager = DaveSessionManager.create(1L, 42L, new NoopCallbacks())) {
+            manager.onSelectProtocolAck(0);
+            manager.encrypt(DaveMediaType.AUDIO, 1, input, output);
+            System.out.println(FIRST_FRAME + (System.nanoTime() - start));
+        }
+    }
+
+    // Returns pairs of (process start to first frame, main to first frame) in nanoseconds
+    private static long[][] measure(Path aotCache, int runs) throws IOException, InterruptedException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<String> command = new ArrayList<>(List.of(java, "--enable-native-access=ALL-UNNAMED"));
+        if (aotCache != null) {
+            command.add("-XX:AOTCache=" + aotCache);
+        }
+        command.addAll(List.of(
+                "-cp", System.getProperty("java.class.path"), StartupBenchmark.class.getName(), "--child"));
+
+        long[][] results = new long[runs][];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            long firstFrame = -1;
+            long inMain = -1;
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(FIRST_FRAME)) {
+                        firstFrame = System.nanoTime() - start;
+                        inMain = Long.parseLong(line.substring(FIRST_FRAME.length()));
+                    }
+                }
+            }
+
+            if (process.waitFor() != 0 || firstFrame < 0) {
+                throw new IllegalStateException("Benchmark process failed with exit code " + process.exitValue());
+            }
+            results[i] = new long[] {firstFrame, inMain};
+        }
+        return results;
+    }
+
+    private static void report(String name, long[][] results) {
+        long[] total = Arrays.stream(results).mapToLong(result -> result[0]).sorted().toArray();
+        long[] inMain = Arrays.stream(results).mapToLong(result -> result[1]).sorted().toArray();
+        System.out.printf(
+                Locale.ROOT,
+                "%-18s first frame: median %6.1f ms, min %6.1f ms | from main: median %6.1f ms, min %6.1f ms%n",
+                name,
+                total[total.length / 2] / 1e6,
+                total[0] / 1e6,
+                inMain[inMain.length / 2] / 1e6,
+                inMain[0] / 1e6);
+    }
+}
@@ -0,0 +1,104 @@
+package jdave.benchmarks;
+
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.DaveSessionOptions;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Transition and mass join latency by channel size.
+// The session is initialized for protocol version 1 without a remote group, so the key ratchet exports run through
+// the complete Java and FFI path, but libdave skips the HKDF export itself.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TransitionBenchmark {
+    @Param({"10", "100", "1000"})
+    int members;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    // Lazy sessions only track silent members, so transitions skip them entirely
+    @Param({"false", "true"})
+    boolean lazy;
+
+    private DaveSessionManager manager;
+    private long[] userIds;
+    private int transitionId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        userIds = random.longs(members).toArray();
+        manager = createManager(random.nextLong());
+        manager.addUsers(userIds);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.close();
+    }
+
+    @Benchmark
+    public void prepareTransition() {
+        manager.onDaveProtocolPrepareTransition(++transitionId, 1);
+    }
+
+    @Benchmark
+    public void prepareAndExecuteTransition() {
+        int id = ++transitionId;
+        manager.onDaveProtocolPrepareTransition(id, 1);
+        manager.onDaveProtocolExecuteTransition(id);
+    }
+
+    @State(Scope.Thread)
+    public static class JoinState {
+        DaveSessionManager manager;
+
+        @Setup(Level.Invocation)
+        public void setup(TransitionBenchmark benchmark) {
+            manager = benchmark.createManager(benchmark.userIds[0] ^ 1);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            manager.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void bulkJoin(JoinState state) {
+        state.manager.addUsers(userIds);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void sequentialJoin(JoinState state) {
+        for (long userId : userIds) {
+            state.manager.addUser(userId);
+        }
+    }
+
+    DaveSessionManager createManager(long selfUserId) {
+        DaveSessionManager manager = DaveSessionManager.create(
+                selfUserId,
+                42L,
+                new NoopCallbacks(),
+                DaveSessionOptions.defaults()
+                        .withKeyRatchetParallelism(parallelism)
+                        .withLazyDecryptors(lazy));
+        manager.onSelectProtocolAck(1);
+        manager.onDaveProtocolPrepareTransition(++transitionId, 1);
+        manager.onDaveProtocolExecuteTransition(transitionId);
+        return manager;
+    }
+}
@@ -2,6 +2,8 @@ plugins {
     java
 
     alias(libs.plugins.version.catalog.update)
+    alias(libs.plugins.jmh) apply false
+    alias(libs.plugins.graalvm.native) apply false
 }
 
 group = "club.minnced"
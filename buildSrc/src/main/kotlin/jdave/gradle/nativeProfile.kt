@@ -0,0 +1,74 @@
+package jdave.gradle
+
+import org.gradle.api.Project
+
+// Selected with -PnativeProfile=release, the default profile uses the libdave build as is
+val Project.nativeProfile: NativeProfile
+    get() = NativeProfile.parse(findProperty("nativeProfile") as? String ?: "default")
+
+// Selected with -PcryptoBackend=boringssl, only applies to the release profile
+val Project.cryptoBackend: CryptoBackend
+    get() = CryptoBackend.parse(findProperty("cryptoBackend") as? String ?: "openssl3")
+
+enum class NativeProfile(val key: String) {
+    Default("default"),
+    Release("release");
+
+    companion object {
+        fun parse(key: String) = entries.find { it.key == key.lowercase() } ?: error("Unknown native profile: $key")
+    }
+}
+
+// Backs AES-GCM in the frame crypto and the MLS cipher suite, picked through the vcpkg manifests of libdave
+enum class CryptoBackend(val key: String, val manifestDirectory: String?) {
+    OpenSSL3("openssl3", null),
+    OpenSSL11("openssl1.1", "vcpkg-alts/openssl_1.1"),
+    BoringSSL("boringssl", "vcpkg-alts/boringssl");
+
+    companion object {
+        fun parse(key: String) = entries.find { it.key == key.lowercase() } ?: error("Unknown crypto backend: $key")
+    }
+}
+
+// Static vcpkg triplets, so the crypto backend is linked into the library instead of loaded from the system.
+// The universal darwin build keeps the default triplet, which is static on macOS already.
+fun Platform.staticTriplet(): String? {
+    val arch = when (arch) {
+        Architecture.X86_64 -> "x64"
+        Architecture.X86 -> "x86"
+        Architecture.AARCH64 -> "arm64"
+        Architecture.ARM -> "arm"
+        Architecture.DARWIN -> return null
+    }
+
+    return when (operatingSystem) {
+        OperatingSystem.Linux -> "$arch-linux"
+        OperatingSystem.MacOS -> "$arch-osx"
+        OperatingSystem.Windows -> "$arch-windows-static-md"
+    }
+}
+
+// Linker flags that only export the dave* C API, everything else stays local to the library.
+// Windows DLLs only export what the API marks for export anyway.
+fun Platform.exportFlags(exportsFile: String): List<String> = when (operatingSystem) {
+    OperatingSystem.Linux ->
+        listOf("-Wl,--version-script=$exportsFile", "-Wl,--gc-sections", "-Wl,-O1", "-Wl,--as-needed")
+    OperatingSystem.MacOS -> listOf("-Wl,-exported_symbols_list,$exportsFile", "-Wl,-dead_strip")
+    OperatingSystem.Windows -> emptyList()
+}
+
+fun Platform.exportsFileContent(): String = when (operatingSystem) {
+    OperatingSystem.MacOS -> "_dave*\n"
+    else -> "{\n  global: dave*;\n  local: *;\n};\n"
+}
+
+// -O3 with separate sections per function, so the linker can drop whatever the exported API does not reach
+fun Platform.releaseCompilerFlags(): String = when (operatingSystem) {
+    OperatingSystem.Windows -> "/O2 /Ob3 /DNDEBUG"
+    else -> "-O3 -DNDEBUG -fvisibility-inlines-hidden -ffunction-sections -fdata-sections"
+}
+
+fun Platform.releaseLinkerFlags(exportsFile: String): List<String> = when (operatingSystem) {
+    OperatingSystem.Linux -> exportFlags(exportsFile) + listOf("-static-libstdc++", "-static-libgcc")
+    else -> exportFlags(exportsFile)
+}
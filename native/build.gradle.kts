@@ -1,6 +1,16 @@
+import jdave.gradle.NativeProfile
+import jdave.gradle.cryptoBackend
+import jdave.gradle.exportsFileContent
 import jdave.gradle.getPlatform
+import jdave.gradle.nativeProfile
+import jdave.gradle.releaseCompilerFlags
+import jdave.gradle.releaseLinkerFlags
+import jdave.gradle.staticTriplet
 
-plugins { `publishing-environment` }
+plugins {
+    `publishing-environment`
+    alias(libs.plugins.graalvm.native)
+}
 
 publishingEnvironment { moduleName = "jdave-native-${getPlatform()}" }
 
@@ -15,17 +25,91 @@ dependencies {
 
 val nativeResourceRoot = "resources/libdave"
 
+// The release profile configures libdave itself instead of using its default build: -O3 with LTO, the crypto
+// backend linked statically and only the dave* API exported. Select it with -PnativeProfile=release and the backend
+// with -PcryptoBackend=openssl3|openssl1.1|boringssl. CMake still picks up CMAKE_TOOLCHAIN_FILE for vcpkg.
+val releaseBuildDirectory = layout.buildDirectory.dir("cmake-release")
+val releaseExportsFile = layout.buildDirectory.file("cmake-release-exports/dave.exports")
+
+val configureReleaseNatives by
+    tasks.registering(Exec::class) {
+        val platform = getPlatform()
+        val sources = layout.projectDirectory.dir("libdave/cpp").asFile
+        val exportsFile = releaseExportsFile.get().asFile
+        val linkerFlags = platform.releaseLinkerFlags(exportsFile.absolutePath).joinToString(" ")
+
+        val arguments =
+            mutableListOf(
+                "cmake",
+                "-S",
+                sources.absolutePath,
+                "-B",
+                releaseBuildDirectory.get().asFile.absolutePath,
+                "-DCMAKE_BUILD_TYPE=Release",
+                "-DCMAKE_INTERPROCEDURAL_OPTIMIZATION=ON",
+                "-DCMAKE_C_FLAGS_RELEASE=${platform.releaseCompilerFlags()}",
+                "-DCMAKE_CXX_FLAGS_RELEASE=${platform.releaseCompilerFlags()}",
+                "-DCMAKE_SHARED_LINKER_FLAGS=$linkerFlags",
+            )
+        platform.staticTriplet()?.let { arguments += "-DVCPKG_TARGET_TRIPLET=$it" }
+        cryptoBackend.manifestDirectory?.let { arguments += "-DVCPKG_MANIFEST_DIR=${sources.resolve(it)}" }
+
+        commandLine(arguments)
+        inputs.property("arguments", arguments)
+        outputs.dir(releaseBuildDirectory)
+
+        doFirst {
+            exportsFile.parentFile.mkdirs()
+            exportsFile.writeText(platform.exportsFileContent())
+        }
+    }
+
+val buildReleaseNatives by
+    tasks.registering(Exec::class) {
+        dependsOn(configureReleaseNatives)
+        commandLine(
+            "cmake",
+            "--build",
+            releaseBuildDirectory.get().asFile.absolutePath,
+            "--config",
+            "Release",
+            "--parallel",
+        )
+    }
+
 val assembleNatives by
     tasks.registering(Copy::class) {
-        dependsOn(gradle.includedBuild("libdave").task(":cpp:assemble"))
+        if (nativeProfile == NativeProfile.Release) {
+            dependsOn(buildReleaseNatives)
+
+            val libraryPattern = getPlatform().operatingSystem.libraryPattern
+            from(releaseBuildDirectory) {
+                include { it.isDirectory || libraryPattern.matchEntire(it.name)?.groupValues?.get(1) == "dave" }
+                eachFile { path = name }
+                includeEmptyDirs = false
+            }
+        } else {
+            dependsOn(gradle.includedBuild("libdave").task(":cpp:assemble"))
 
-        from(project.layout.projectDirectory.dir("libdave/cpp/build/libs")) {
-            include {
-                it.name.endsWith(".so") || it.name.endsWith(".dll") || it.name.endsWith(".dylib")
+            from(project.layout.projectDirectory.dir("libdave/cpp/build/libs")) {
+                include {
+                    it.name.endsWith(".so") || it.name.endsWith(".dll") || it.name.endsWith(".dylib")
+                }
             }
         }
 
         into(layout.buildDirectory.dir("$nativeResourceRoot/natives/${getPlatform()}"))
+
+        // Content hash and size next to each library, the loader uses them to reuse its cached copy without rehashing
+        doLast {
+            destinationDir
+                .listFiles { file -> file.isFile && !file.name.endsWith(".sha256") }
+                ?.forEach { library ->
+                    val digest = java.security.MessageDigest.getInstance("SHA-256").digest(library.readBytes())
+                    val hash = digest.joinToString("") { "%02x".format(it) }
+                    library.resolveSibling("${library.name}.sha256").writeText("$hash ${library.length()}\n")
+                }
+        }
     }
 
 tasks.processResources {
@@ -45,3 +129,9 @@ tasks.test {
         html.required = true
     }
 }
+
+// Runs the test suite as a native executable with ./gradlew :native:nativeTest, requires a GraalVM toolchain.
+// The reachability metadata and FFM flags come from META-INF/native-image of the api module.
+graalvmNative {
+    binaries.named("test") { buildArgs.add("--enable-native-access=ALL-UNNAMED") }
+}
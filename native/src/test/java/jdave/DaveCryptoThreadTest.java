@@ -0,0 +1,155 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveCryptoThread;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.SpinWaitStrategy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DaveCryptoThreadTest {
+    private static final long USER_ID = 2L;
+
+    private DaveSessionManager manager;
+    private ExecutorService callers;
+    // Holds the crypto thread in its start hook, so frames pile up in the queue
+    private CountDownLatch blocked;
+
+    @BeforeEach
+    void setup() {
+        // Passthrough decryptors copy every frame unchanged
+        manager = DaveSessionManager.create(1L, 10L, new NoopCallbacks());
+        manager.onSelectProtocolAck(0);
+        manager.addUser(USER_ID);
+        callers = Executors.newFixedThreadPool(2);
+        blocked = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        blocked.countDown();
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(10, TimeUnit.SECONDS));
+        manager.close();
+    }
+
+    @Test
+    void testHandOff() {
+        try (DaveCryptoThread cryptoThread = DaveCryptoThread.start("jdave-crypto-test")) {
+            for (int i = 0; i < 100; i++) {
+                assertDecrypted(cryptoThread, i);
+            }
+            assertEquals(100, cryptoThread.getHandedOffFrames());
+            assertEquals(0, cryptoThread.getInlineFrames());
+        }
+    }
+
+    @Test
+    void testInlineWhenQueueFull() throws Exception {
+        // A capacity of one is rounded up to a queue of two slots
+        try (DaveCryptoThread cryptoThread = startBlocked()) {
+            List<Future<?>> queued = fillQueue(cryptoThread, 2);
+
+            assertDecrypted(cryptoThread, 2);
+            assertEquals(1, cryptoThread.getInlineFrames());
+
+            blocked.countDown();
+            for (Future<?> frame : queued) {
+                frame.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(2, cryptoThread.getHandedOffFrames());
+        }
+    }
+
+    @Test
+    void testCloseDrainsQueue() throws Exception {
+        DaveCryptoThread cryptoThread = startBlocked();
+        List<Future<?>> queued = fillQueue(cryptoThread, 2);
+
+        cryptoThread.close();
+        assertFalse(cryptoThread.isRunning());
+        blocked.countDown();
+
+        // Frames queued before the close still complete on the crypto thread
+        for (Future<?> frame : queued) {
+            frame.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(2, cryptoThread.getHandedOffFrames());
+
+        // Later frames are processed on the calling thread
+        assertDecrypted(cryptoThread, 2);
+        assertEquals(1, cryptoThread.getInlineFrames());
+    }
+
+    @Test
+    void testInlineAfterThreadDied() {
+        DaveCryptoThread cryptoThread =
+                DaveCryptoThread.start("jdave-crypto-test", SpinWaitStrategy.BUSY_SPIN, 1, () -> {
+                    throw new AssertionError("Thread died");
+                });
+
+        // Handed off before the thread died or processed inline right away, the caller never hangs
+        assertDecrypted(cryptoThread, 0);
+        assertFalse(cryptoThread.isRunning());
+        assertDecrypted(cryptoThread, 1);
+        assertTrue(cryptoThread.getInlineFrames() >= 1);
+    }
+
+    @Test
+    void testInvalidQueueCapacity() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> DaveCryptoThread.start("jdave-crypto-test", SpinWaitStrategy.BUSY_SPIN, 0, null));
+    }
+
+    private DaveCryptoThread startBlocked() {
+        return DaveCryptoThread.start("jdave-crypto-test", SpinWaitStrategy.SPIN_THEN_YIELD, 1, () -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    // Every caller thread has one frame in flight, returns once all of them sit in the queue
+    private List<Future<?>> fillQueue(DaveCryptoThread cryptoThread, int frames) throws InterruptedException {
+        List<Future<?>> queued = new ArrayList<>();
+        for (int i = 0; i < frames; i++) {
+            int sequence = i;
+            queued.add(callers.submit(() -> assertDecrypted(cryptoThread, sequence)));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (cryptoThread.getHandedOffFrames() < frames) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+        return queued;
+    }
+
+    // 8 byte frames carrying their sequence number, never mistaken for an encrypted frame
+    private void assertDecrypted(DaveCryptoThread cryptoThread, int sequence) {
+        ByteBuffer encrypted = ByteBuffer.allocateDirect(8).putInt(0, sequence);
+        ByteBuffer decrypted = ByteBuffer.allocateDirect(8);
+        assertEquals(
+                DaveDecryptResultType.SUCCESS,
+                cryptoThread.decrypt(manager, DaveMediaType.AUDIO, USER_ID, encrypted, decrypted));
+        assertEquals(sequence, decrypted.getInt(0));
+    }
+}
@@ -0,0 +1,44 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.manager.DaveManagement;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.DaveSessionOptions;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+
+class DaveManagementTest {
+    @Test
+    void testSessionBeans() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName sessions = new ObjectName(DaveManagement.DOMAIN + ":type=DaveSession,factory=\"test\",*");
+        ObjectName factory = new ObjectName(DaveManagement.DOMAIN + ":type=DaveSessionFactory,name=\"test\"");
+
+        try (DaveManagement management = DaveManagement.create("test")) {
+            DaveSessionOptions options = DaveSessionOptions.defaults().withManagement(management);
+            try (DaveSessionManager manager = DaveSessionManager.create(1L, 10L, new NoopCallbacks(), options)) {
+                manager.onSelectProtocolAck(0);
+                manager.addUsers(new long[] {2L, 3L});
+
+                Set<ObjectName> names = server.queryNames(sessions, null);
+                assertEquals(1, names.size());
+                ObjectName session = names.iterator().next();
+                assertEquals("10", server.getAttribute(session, "ChannelId"));
+                assertEquals(2, server.getAttribute(session, "LiveDecryptors"));
+                assertEquals(1, server.getAttribute(factory, "ActiveSessions"));
+                assertTrue(((String) server.invoke(session, "dumpState", null, null)).contains("user=2"));
+            }
+
+            assertTrue(server.queryNames(sessions, null).isEmpty());
+            assertEquals(0, server.getAttribute(factory, "ActiveSessions"));
+        }
+
+        assertFalse(server.isRegistered(factory));
+    }
+}
@@ -0,0 +1,164 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveReceivePipeline;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.DecryptBatch;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DaveReceivePipelineTest {
+    private static final int USERS = 20;
+
+    private DaveSessionManager manager;
+
+    @BeforeEach
+    void setup() {
+        // Passthrough decryptors copy every frame unchanged
+        manager = DaveSessionManager.create(1L, 10L, new NoopCallbacks());
+        manager.onSelectProtocolAck(0);
+        for (long userId = 1; userId <= USERS; userId++) {
+            manager.addUser(userId);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void testSmallBatchStaysOnCallingThread() {
+        LaneRecorder recorder = new LaneRecorder();
+        try (DaveReceivePipeline pipeline = DaveReceivePipeline.create(manager, recorder, 4)) {
+            recorder.batch = new DecryptBatch();
+            for (int i = 0; i < 3; i++) {
+                add(recorder.batch, i + 1, i);
+            }
+
+            pipeline.decrypt(recorder.batch);
+            assertEquals(0, recorder.lanes.size());
+            assertDecrypted(recorder.batch, 1);
+        }
+    }
+
+    @Test
+    void testUsersKeepTheirLane() {
+        LaneRecorder recorder = new LaneRecorder();
+        try (DaveReceivePipeline pipeline = DaveReceivePipeline.create(manager, recorder, 4)) {
+            recorder.batch = new DecryptBatch(4);
+            for (int round = 0; round < 4; round++) {
+                for (long userId = 1; userId <= USERS; userId++) {
+                    add(recorder.batch, userId, round);
+                }
+            }
+
+            pipeline.decrypt(recorder.batch);
+            // The calling thread runs the first lane, the executor gets the rest
+            assertEquals(3, recorder.lanes.size());
+            assertDecrypted(recorder.batch, USERS);
+
+            Map<Long, Integer> laneOfUser = new HashMap<>();
+            for (int i = 0; i < recorder.batch.size(); i++) {
+                int lane = 0;
+                for (int task = 0; task < recorder.lanes.size(); task++) {
+                    if (recorder.lanes.get(task).contains(i)) {
+                        lane = task + 1;
+                    }
+                }
+
+                Integer previous = laneOfUser.putIfAbsent(recorder.batch.getUserId(i), lane);
+                if (previous != null) {
+                    assertEquals(previous.intValue(), lane);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testPerUserOrderOnForkJoinPool() {
+        // Every user writes all of its frames into one buffer, only in-order decryption leaves the last frame there
+        ByteBuffer[] outputs = new ByteBuffer[USERS + 1];
+        for (int userId = 1; userId <= USERS; userId++) {
+            outputs[userId] = ByteBuffer.allocateDirect(8);
+        }
+
+        DecryptBatch batch = new DecryptBatch();
+        try (DaveReceivePipeline pipeline = DaveReceivePipeline.withForkJoinPool(manager, 4)) {
+            for (int tick = 0; tick < 200; tick++) {
+                batch.clear();
+                for (int round = 0; round < 8; round++) {
+                    for (int userId = 1; userId <= USERS; userId++) {
+                        batch.add(userId, DaveMediaType.AUDIO, frame(tick * 8 + round), outputs[userId].clear());
+                    }
+                }
+
+                pipeline.decrypt(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    assertEquals(DaveDecryptResultType.SUCCESS, batch.getResult(i));
+                }
+                for (int userId = 1; userId <= USERS; userId++) {
+                    assertEquals(tick * 8 + 7, outputs[userId].getInt(0));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testInvalidParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> DaveReceivePipeline.create(manager, Runnable::run, 0));
+    }
+
+    private static void add(DecryptBatch batch, long userId, int sequence) {
+        batch.add(userId, DaveMediaType.AUDIO, frame(sequence), ByteBuffer.allocateDirect(8));
+    }
+
+    // Frames were added in rounds, every frame of a round carries the round as its sequence number
+    private static void assertDecrypted(DecryptBatch batch, int framesPerRound) {
+        for (int i = 0; i < batch.size(); i++) {
+            assertEquals(DaveDecryptResultType.SUCCESS, batch.getResult(i));
+            assertEquals(i / framesPerRound, batch.getDecrypted(i).getInt(0));
+        }
+    }
+
+    // 8 byte frames carrying their sequence number, never mistaken for an encrypted frame
+    private static ByteBuffer frame(int sequence) {
+        return ByteBuffer.allocateDirect(8).putInt(0, sequence);
+    }
+
+    // Runs every lane inline and records which frames it decrypted
+    private static final class LaneRecorder implements Executor {
+        private final List<List<Integer>> lanes = new ArrayList<>();
+        private DecryptBatch batch;
+
+        @Override
+        public void execute(Runnable task) {
+            List<Integer> before = decrypted();
+            task.run();
+            List<Integer> frames = decrypted();
+            frames.removeAll(before);
+            lanes.add(frames);
+        }
+
+        private List<Integer> decrypted() {
+            List<Integer> frames = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.getResult(i) != null) {
+                    frames.add(i);
+                }
+            }
+            return frames;
+        }
+    }
+}
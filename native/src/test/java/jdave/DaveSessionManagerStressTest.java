@@ -0,0 +1,186 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.DaveSessionOptions;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.NonNull;
+import org.junit.jupiter.api.Test;
+
+class DaveSessionManagerStressTest {
+    private static final int USERS = 16;
+    private static final int MEDIA_THREADS = 4;
+
+    @Test
+    void testCloseDuringMedia() throws Exception {
+        Random random = new Random(42);
+        long selfUserId = random.nextLong();
+        long[] userIds = random.longs(USERS).toArray();
+
+        DaveSessionManager manager = DaveSessionManager.create(selfUserId, random.nextLong(), new NoopCallbacks());
+        manager.onSelectProtocolAck(0);
+        manager.addUsers(userIds);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder frames = new LongAdder();
+        ExecutorService executor = Executors.newFixedThreadPool(MEDIA_THREADS + 1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < MEDIA_THREADS; i++) {
+                int seed = i;
+                futures.add(executor.submit(() -> {
+                    Random local = new Random(seed);
+                    ByteBuffer input = ByteBuffer.allocateDirect(512);
+                    ByteBuffer output = ByteBuffer.allocateDirect(1024);
+                    while (running.get()) {
+                        input.clear();
+                        output.clear();
+                        long userId = userIds[local.nextInt(USERS)];
+                        manager.decrypt(DaveMediaType.AUDIO, userId, input, output);
+
+                        input.clear();
+                        output.clear();
+                        manager.encrypt(DaveMediaType.AUDIO, 1, input, output);
+                        frames.increment();
+                    }
+                }));
+            }
+
+            // Churns decryptors while the media threads use them
+            futures.add(executor.submit(() -> {
+                Random local = new Random(-1);
+                while (running.get()) {
+                    long userId = userIds[local.nextInt(USERS)];
+                    manager.removeUser(userId);
+                    manager.addUser(userId);
+                }
+            }));
+
+            Thread.sleep(500);
+            manager.close();
+            Thread.sleep(50);
+        } finally {
+            running.set(false);
+            executor.shutdown();
+        }
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertTrue(frames.sum() > 0);
+        assertEquals(0, manager.getDecryptorStats().liveDecryptors());
+        // Closing twice is a no-op
+        manager.close();
+    }
+
+    @Test
+    void testControlPlaneAfterClose() throws Exception {
+        LongAdder sent = new LongAdder();
+        NoopCallbacks callbacks = new NoopCallbacks() {
+            @Override
+            public void sendMLSKeyPackage(@NonNull ByteBuffer mlsKeyPackage) {
+                sent.increment();
+            }
+
+            @Override
+            public void sendMLSInvalidCommitWelcome(int transitionId) {
+                sent.increment();
+            }
+        };
+
+        DaveSessionManager manager = DaveSessionManager.create(1L, 10L, callbacks);
+        manager.onSelectProtocolAck(1);
+        manager.addUsers(new long[] {2L, 3L});
+
+        // Events still queued behind the close run afterwards, late ones arrive once it is done
+        long sentBeforeClose = sent.sum();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        futures.add(manager.closeAsync());
+        futures.addAll(deliverControlPlaneEvents(manager));
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        deliverControlPlaneEvents(manager).forEach(CompletableFuture::join);
+        manager.onSelectProtocolAck(1);
+        manager.onDaveProtocolPrepareEpoch(1, 1);
+        manager.onDaveProtocolExecuteTransition(1);
+
+        assertEquals(sentBeforeClose, sent.sum());
+        assertEquals(0, manager.getDecryptorStats().liveDecryptors());
+    }
+
+    @Test
+    void testLazyDecryptorCreatedOnControlPlane() throws Exception {
+        DaveSessionOptions options = DaveSessionOptions.defaults().withLazyDecryptors(true);
+        try (DaveSessionManager manager = DaveSessionManager.create(1L, 10L, new NoopCallbacks(), options)) {
+            manager.onSelectProtocolAck(0);
+            manager.addUser(2L);
+
+            ByteBuffer input = ByteBuffer.allocateDirect(160);
+            ByteBuffer output = ByteBuffer.allocateDirect(320);
+            // The media thread only queues the creation, the frames before it is published are dropped
+            for (int i = 0; i < 10; i++) {
+                assertEquals(
+                        DaveDecryptResultType.FAILURE,
+                        manager.decrypt(DaveMediaType.AUDIO, 2L, input.clear(), output.clear()));
+            }
+
+            // The control plane is serial, so the creation is done once a later task completes
+            manager.addUserAsync(2L).get(10, TimeUnit.SECONDS);
+            assertEquals(1, manager.getDecryptorStats().liveDecryptors());
+            assertEquals(1, manager.getDecryptorStats().materializedDecryptors());
+            assertEquals(
+                    DaveDecryptResultType.SUCCESS,
+                    manager.decrypt(DaveMediaType.AUDIO, 2L, input.clear(), output.clear()));
+        }
+    }
+
+    @Test
+    void testIdleDecryptorEvictedWithoutTraffic() throws Exception {
+        DaveSessionOptions options = DaveSessionOptions.defaults().withDecryptorIdleTimeout(Duration.ofMillis(200));
+        try (DaveSessionManager manager = DaveSessionManager.create(1L, 10L, new NoopCallbacks(), options)) {
+            manager.onSelectProtocolAck(0);
+            manager.addUserAsync(2L).get(10, TimeUnit.SECONDS);
+            assertEquals(1, manager.getDecryptorStats().liveDecryptors());
+
+            // Nobody calls evictIdleDecryptors or transitions, the session evicts on its own schedule
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (manager.getDecryptorStats().liveDecryptors() > 0) {
+                assertTrue(System.nanoTime() < deadline);
+                Thread.sleep(10);
+            }
+            assertEquals(1, manager.getDecryptorStats().evictedDecryptors());
+        }
+    }
+
+    private static List<CompletableFuture<Void>> deliverControlPlaneEvents(DaveSessionManager manager) {
+        ByteBuffer message = ByteBuffer.allocateDirect(64);
+        return List.of(
+                manager.onDaveProtocolMLSExternalSenderPackageAsync(message.duplicate()),
+                manager.onMLSProposalsAsync(message.duplicate()),
+                manager.onMLSPrepareCommitTransitionAsync(1, message.duplicate()),
+                manager.onMLSWelcomeAsync(1, message.duplicate()),
+                manager.onDaveProtocolPrepareEpochAsync(1, 1),
+                manager.onDaveProtocolPrepareTransitionAsync(2, 1),
+                manager.onDaveProtocolExecuteTransitionAsync(2),
+                manager.addUserAsync(4L),
+                manager.resendKeyPackageAsync());
+    }
+}
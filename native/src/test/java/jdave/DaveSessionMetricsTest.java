@@ -0,0 +1,71 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.DaveSessionOptions;
+import club.minnced.discord.jdave.manager.FrameStats;
+import club.minnced.discord.jdave.manager.MetricsSnapshot;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class DaveSessionMetricsTest {
+    @Test
+    void testFrameMetrics() {
+        ByteBuffer input = ByteBuffer.allocateDirect(160);
+        ByteBuffer encrypted = ByteBuffer.allocateDirect(320);
+        ByteBuffer decrypted = ByteBuffer.allocateDirect(320);
+
+        DaveSessionOptions options = DaveSessionOptions.defaults().withMetricsEnabled(true);
+        try (DaveSessionManager manager = DaveSessionManager.create(1L, 10L, new NoopCallbacks(), options)) {
+            manager.onSelectProtocolAck(0);
+            manager.addUser(2L);
+
+            for (int i = 0; i < 10; i++) {
+                input.clear();
+                encrypted.clear();
+                decrypted.clear();
+                manager.encrypt(DaveMediaType.AUDIO, 1, input, encrypted);
+                manager.decrypt(DaveMediaType.AUDIO, 2L, encrypted, decrypted);
+            }
+            // Unknown sender, never reaches libdave and gets no per-user entry
+            manager.decrypt(DaveMediaType.AUDIO, 3L, encrypted, decrypted);
+
+            MetricsSnapshot metrics = manager.getMetrics();
+            assertEquals(10, metrics.encrypt().frames());
+            assertEquals(10, metrics.encrypt().passthroughFrames());
+            assertEquals(1600, metrics.encrypt().inputBytes());
+            assertEquals(10, metrics.encrypt().latency().count());
+
+            assertEquals(11, metrics.decrypt().frames());
+            assertEquals(1, metrics.decrypt().unavailable());
+            assertEquals(1, metrics.users().size());
+
+            FrameStats user = metrics.users().get(2L);
+            assertEquals(10, user.frames());
+            assertEquals(0, user.failures());
+            assertEquals(Map.of(), user.failuresByResultCode());
+            assertTrue(user.latency().percentileNanos(99) <= user.latency().maxNanos());
+
+            MetricsSnapshot merged = metrics.merge(metrics);
+            assertEquals(20, merged.encrypt().frames());
+            assertEquals(20, merged.users().get(2L).latency().count());
+            // Snapshots compare by value, including the latency buckets
+            assertEquals(merged, MetricsSnapshot.mergeAll(List.of(metrics, metrics)));
+            assertEquals(MetricsSnapshot.empty(), MetricsSnapshot.mergeAll(List.of()));
+        }
+    }
+
+    @Test
+    void testDisabledByDefault() {
+        try (DaveSessionManager manager = DaveSessionManager.create(1L, 10L, new NoopCallbacks())) {
+            manager.onSelectProtocolAck(0);
+            manager.encrypt(DaveMediaType.AUDIO, 1, ByteBuffer.allocateDirect(160), ByteBuffer.allocateDirect(320));
+            assertEquals(FrameStats.empty(), manager.getMetrics().encrypt());
+        }
+    }
+}
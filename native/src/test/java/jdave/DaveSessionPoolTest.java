@@ -0,0 +1,103 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import club.minnced.discord.jdave.DaveSessionImpl;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.DaveSessionOptions;
+import club.minnced.discord.jdave.manager.DaveSessionPool;
+import club.minnced.discord.jdave.utils.NativeHandleType;
+import club.minnced.discord.jdave.utils.NativeHandles;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.Test;
+
+class DaveSessionPoolTest {
+    @Test
+    void testAcquireFromWarmPool() {
+        try (DaveSessionPool pool = DaveSessionPool.create(2, null, Runnable::run)) {
+            assertEquals(2, pool.getWarmSessions());
+
+            try (DaveSessionImpl session = pool.acquire()) {
+                assertFalse(session.isClosed());
+            }
+            assertEquals(1, pool.getHits());
+            assertEquals(0, pool.getMisses());
+            // Refilled right away by the inline executor
+            assertEquals(2, pool.getWarmSessions());
+        }
+    }
+
+    @Test
+    void testRefillInBackground() {
+        ManualExecutor executor = new ManualExecutor();
+        try (DaveSessionPool pool = DaveSessionPool.create(3, null, executor)) {
+            assertEquals(0, pool.getWarmSessions());
+
+            // An empty pool never waits for the refill, only one refill is queued at a time
+            pool.acquire().close();
+            pool.acquire().close();
+            assertEquals(2, pool.getMisses());
+            assertEquals(1, executor.tasks.size());
+
+            executor.runAll();
+            assertEquals(3, pool.getWarmSessions());
+
+            pool.acquire().close();
+            assertEquals(1, pool.getHits());
+            executor.runAll();
+            assertEquals(3, pool.getWarmSessions());
+        }
+    }
+
+    @Test
+    void testCloseDestroysWarmSessions() {
+        long sessions = NativeHandles.getLiveHandles(NativeHandleType.SESSION);
+        ManualExecutor executor = new ManualExecutor();
+        DaveSessionPool pool = DaveSessionPool.create(4, null, executor);
+        executor.runAll();
+        assertEquals(sessions + 4, NativeHandles.getLiveHandles(NativeHandleType.SESSION));
+
+        // The refill queued by this acquire only runs after the close
+        DaveSessionImpl acquired = pool.acquire();
+        pool.close();
+        executor.runAll();
+
+        assertEquals(0, pool.getWarmSessions());
+        assertEquals(sessions + 1, NativeHandles.getLiveHandles(NativeHandleType.SESSION));
+        acquired.close();
+        assertEquals(sessions, NativeHandles.getLiveHandles(NativeHandleType.SESSION));
+    }
+
+    @Test
+    void testRejectOtherAuthSession() {
+        try (DaveSessionPool pool = DaveSessionPool.create(1, "auth", Runnable::run)) {
+            DaveSessionOptions options = DaveSessionOptions.defaults().withSessionPool(pool);
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> DaveSessionManager.create(1L, 10L, new NoopCallbacks(), options));
+
+            DaveSessionManager.create(1L, 10L, new NoopCallbacks(), options.withAuthSessionId("auth")).close();
+            assertEquals(1, pool.getHits());
+        }
+    }
+
+    private static final class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.manager.DaveAdmissionException;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.DaveSessionOptions;
+import club.minnced.discord.jdave.manager.DaveSessionRegistry;
+import club.minnced.discord.jdave.manager.RegistryStats;
+import club.minnced.discord.jdave.utils.NativeHandles;
+import org.junit.jupiter.api.Test;
+
+class DaveSessionRegistryTest {
+    @Test
+    void testLimits() {
+        try (DaveSessionRegistry registry = DaveSessionRegistry.create(2, 1, 2, 3)) {
+            DaveSessionOptions options = DaveSessionOptions.defaults().withRegistry(registry);
+
+            DaveSessionManager first = DaveSessionManager.create(1L, 10L, new NoopCallbacks(), options);
+            DaveSessionManager second = DaveSessionManager.create(2L, 20L, new NoopCallbacks(), options);
+            assertThrows(
+                    DaveAdmissionException.class,
+                    () -> DaveSessionManager.create(3L, 30L, new NoopCallbacks(), options));
+
+            // Users beyond the decryptor budget are still known, they just have no decryptor yet
+            first.addUsers(new long[] {100L, 101L, 102L, 103L, 104L});
+            RegistryStats stats = registry.getStats();
+            assertEquals(2, stats.sessions());
+            assertEquals(5, stats.knownUsers());
+            assertEquals(3, stats.liveDecryptors());
+            assertEquals(1, stats.rejectedSessions());
+
+            first.close();
+            assertEquals(1, registry.getStats().sessions());
+
+            // Closing released the session slot and the decryptors
+            try (DaveSessionManager third = DaveSessionManager.create(3L, 30L, new NoopCallbacks(), options)) {
+                third.addUsers(new long[] {200L, 201L, 202L});
+                assertEquals(3, registry.getStats().liveDecryptors());
+            }
+
+            second.close();
+            assertEquals(0, registry.getStats().sessions());
+        }
+    }
+
+    @Test
+    void testNativeByteLimit() {
+        // Room for nothing beyond what is allocated right now, the first session's own handles exceed it
+        long limit = NativeHandles.getEstimatedBytes() + 1;
+        try (DaveSessionRegistry registry = DaveSessionRegistry.create(1, 1, 10, 10, limit)) {
+            DaveSessionOptions options = DaveSessionOptions.defaults().withRegistry(registry);
+
+            try (DaveSessionManager first = DaveSessionManager.create(1L, 10L, new NoopCallbacks(), options)) {
+                assertThrows(
+                        DaveAdmissionException.class,
+                        () -> DaveSessionManager.create(2L, 20L, new NoopCallbacks(), options));
+
+                first.addUsers(new long[] {100L, 101L});
+                RegistryStats stats = registry.getStats();
+                assertEquals(2, stats.knownUsers());
+                assertEquals(0, stats.liveDecryptors());
+                assertEquals(1, stats.rejectedSessions());
+            }
+        }
+    }
+
+    @Test
+    void testCloseClosesSessions() {
+        DaveSessionRegistry registry = DaveSessionRegistry.create(1, 1, 10, 10);
+        DaveSessionOptions options = DaveSessionOptions.defaults().withRegistry(registry);
+        DaveSessionManager manager = DaveSessionManager.create(1L, 10L, new NoopCallbacks(), options);
+
+        registry.close();
+        assertTrue(manager.getDiagnostics().closed());
+        assertEquals(0, registry.getStats().sessions());
+        assertThrows(
+                IllegalStateException.class, () -> DaveSessionManager.create(2L, 20L, new NoopCallbacks(), options));
+    }
+}
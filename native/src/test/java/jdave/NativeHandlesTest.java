@@ -0,0 +1,42 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import club.minnced.discord.jdave.DaveEncryptor;
+import club.minnced.discord.jdave.DaveSessionImpl;
+import club.minnced.discord.jdave.utils.NativeHandleType;
+import club.minnced.discord.jdave.utils.NativeHandles;
+import org.junit.jupiter.api.Test;
+
+class NativeHandlesTest {
+    @Test
+    void testLiveHandles() {
+        long sessions = NativeHandles.getLiveHandles(NativeHandleType.SESSION);
+        long encryptors = NativeHandles.getLiveHandles(NativeHandleType.ENCRYPTOR);
+        long bytes = NativeHandles.getEstimatedBytes();
+
+        DaveSessionImpl session = DaveSessionImpl.create(null);
+        DaveEncryptor encryptor = DaveEncryptor.create(session, 1L);
+        assertEquals(sessions + 1, NativeHandles.getLiveHandles(NativeHandleType.SESSION));
+        assertEquals(encryptors + 1, NativeHandles.getLiveHandles(NativeHandleType.ENCRYPTOR));
+
+        encryptor.close();
+        session.close();
+        assertEquals(sessions, NativeHandles.getLiveHandles(NativeHandleType.SESSION));
+        assertEquals(encryptors, NativeHandles.getLiveHandles(NativeHandleType.ENCRYPTOR));
+        assertEquals(bytes, NativeHandles.getEstimatedBytes());
+    }
+
+    @Test
+    void testBuffersAreFreed() {
+        long buffers = NativeHandles.getLiveHandles(NativeHandleType.BUFFER);
+
+        try (DaveSessionImpl session = DaveSessionImpl.create(null)) {
+            session.initialize((short) 1, 1L, "1");
+            session.sendMarshalledKeyPackage(keyPackage ->
+                    assertEquals(buffers + 1, NativeHandles.getLiveHandles(NativeHandleType.BUFFER)));
+        }
+
+        assertEquals(buffers, NativeHandles.getLiveHandles(NativeHandleType.BUFFER));
+    }
+}
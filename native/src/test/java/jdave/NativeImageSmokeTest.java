@@ -0,0 +1,84 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveDecryptor.DaveDecryptResultType;
+import club.minnced.discord.jdave.DaveEncryptor.DaveEncryptResultType;
+import club.minnced.discord.jdave.DaveKeyRatchet;
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.DaveSessionImpl;
+import club.minnced.discord.jdave.ffi.LibDave;
+import club.minnced.discord.jdave.ffi.NativeUserRoster;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// Covers the load, control plane and media paths end to end and calls every MLS entry point once, meant to run as a
+// native executable with nativeTest. Any binding missing from the reachability metadata fails here at its first call.
+class NativeImageSmokeTest {
+    @Test
+    void testRoundTrip() {
+        Random random = new Random(42);
+        long selfUserId = random.nextLong();
+        long userId = random.nextLong();
+
+        byte[] plaintext = new byte[160];
+        random.nextBytes(plaintext);
+
+        ByteBuffer input = ByteBuffer.allocateDirect(plaintext.length);
+        ByteBuffer encrypted = ByteBuffer.allocateDirect(plaintext.length * 2);
+        ByteBuffer decrypted = ByteBuffer.allocateDirect(plaintext.length * 2);
+        input.put(plaintext).flip();
+
+        try (DaveSessionManager manager =
+                DaveSessionManager.create(selfUserId, random.nextLong(), new NoopCallbacks())) {
+            // Goes through session initialization and the key package before falling back to passthrough
+            manager.onDaveProtocolPrepareEpoch(1, LibDave.getMaxSupportedProtocolVersion());
+            manager.onSelectProtocolAck(0);
+            manager.addUser(userId);
+
+            assertEquals(DaveEncryptResultType.SUCCESS, manager.encrypt(DaveMediaType.AUDIO, 1, input, encrypted));
+            assertEquals(
+                    DaveDecryptResultType.SUCCESS, manager.decrypt(DaveMediaType.AUDIO, userId, encrypted, decrypted));
+
+            byte[] result = new byte[decrypted.remaining()];
+            decrypted.get(result);
+            assertArrayEquals(plaintext, result);
+        }
+    }
+
+    @Test
+    void testMlsEntryPoints() {
+        Random random = new Random(42);
+        List<String> userIds =
+                List.of(Long.toUnsignedString(random.nextLong()), Long.toUnsignedString(random.nextLong()));
+        ByteBuffer invalid = ByteBuffer.allocateDirect(64);
+
+        try (DaveSessionImpl session = DaveSessionImpl.create(null);
+                NativeUserRoster roster = new NativeUserRoster(userIds)) {
+            session.initialize(LibDave.getMaxSupportedProtocolVersion(), random.nextLong(), userIds.get(0));
+            session.sendMarshalledKeyPackage(keyPackage -> assertTrue(keyPackage.hasRemaining()));
+
+            // A real group needs the gateway's external sender, libdave parses and rejects these messages. Each call
+            // still goes through its downcall, a missing descriptor fails here instead of on the first voice call.
+            session.setExternalSender(invalid.duplicate());
+            session.processProposals(invalid.duplicate(), roster, commitWelcome -> {});
+            session.processProposals(invalid.duplicate(), userIds, commitWelcome -> {});
+            assertNotNull(session.processCommit(invalid.duplicate()));
+            assertNull(session.processWelcomeRoster(invalid.duplicate(), roster));
+            assertFalse(session.processWelcome(invalid.duplicate(), userIds));
+
+            // Not in a group yet, so there is no ratchet to export, the call itself has to succeed
+            try (DaveKeyRatchet keyRatchet = DaveKeyRatchet.create(session, userIds.get(1))) {
+                assertNotNull(keyRatchet.getMemorySegment());
+            }
+        }
+    }
+}
@@ -1,9 +1,26 @@
 package jdave;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import club.minnced.discord.jdave.ffi.LibDaveBindingException;
 import club.minnced.discord.jdave.utils.NativeLibraryLoader;
 import club.minnced.discord.jdave.utils.NativeLibraryLoader.NativeLibrary;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
@@ -21,4 +38,80 @@ class NativeLibraryLoaderTest {
 
         assertEquals(resourcePath, library.resourcePath());
     }
+
+    @Test
+    void extractLibraryOnce(@TempDir Path cacheDirectory) throws IOException {
+        NativeLibrary library = NativeLibraryLoader.getNativeLibrary();
+        String fileName = library.os().getLibraryName(library.libraryName());
+        String extension = "." + library.os().getLibraryExtension();
+        Path stale = cacheDirectory.resolve(fileName.replace(extension, "-0000000000000000" + extension));
+        Files.writeString(stale, "stale");
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+
+        Path extracted = NativeLibraryLoader.extractLibrary(cacheDirectory);
+        long modified = Files.getLastModifiedTime(extracted).toMillis();
+
+        assertTrue(Files.isRegularFile(extracted));
+        assertFalse(Files.exists(stale));
+        assertEquals(extracted, NativeLibraryLoader.extractLibrary(cacheDirectory));
+        assertEquals(modified, Files.getLastModifiedTime(extracted).toMillis());
+    }
+
+    @Test
+    void keepRecentlyUsedLibrary(@TempDir Path cacheDirectory) throws IOException {
+        // Another process may still be about to load the library of its own version
+        NativeLibrary library = NativeLibraryLoader.getNativeLibrary();
+        String fileName = library.os().getLibraryName(library.libraryName());
+        String extension = "." + library.os().getLibraryExtension();
+        Path other = cacheDirectory.resolve(fileName.replace(extension, "-0000000000000000" + extension));
+        Files.writeString(other, "other");
+
+        NativeLibraryLoader.extractLibrary(cacheDirectory);
+
+        assertTrue(Files.exists(other));
+    }
+
+    @Test
+    void reuseLibraryWithoutRecord(@TempDir Path cacheDirectory) throws IOException {
+        Path extracted = NativeLibraryLoader.extractLibrary(cacheDirectory);
+        Path record = extracted.resolveSibling(extracted.getFileName() + ".sha256");
+        long modified = Files.getLastModifiedTime(extracted).toMillis();
+        assertTrue(Files.isRegularFile(record));
+
+        // A missing record costs a full hash, an intact library is still not extracted again
+        Files.delete(record);
+        assertEquals(extracted, NativeLibraryLoader.extractLibrary(cacheDirectory));
+        assertEquals(modified, Files.getLastModifiedTime(extracted).toMillis());
+        assertTrue(Files.isRegularFile(record));
+    }
+
+    @Test
+    void replacePlantedLibraryOfSameSize(@TempDir Path cacheDirectory) throws IOException {
+        Path extracted = NativeLibraryLoader.extractLibrary(cacheDirectory);
+        byte[] original = Files.readAllBytes(extracted);
+        Files.write(extracted, new byte[original.length]);
+
+        assertEquals(extracted, NativeLibraryLoader.extractLibrary(cacheDirectory));
+        assertArrayEquals(original, Files.readAllBytes(extracted));
+    }
+
+    @Test
+    void refuseSharedCacheDirectory(@TempDir Path cacheDirectory) throws IOException {
+        assumeTrue(cacheDirectory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Files.setPosixFilePermissions(cacheDirectory, PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        assertThrows(LibDaveBindingException.class, () -> NativeLibraryLoader.extractLibrary(cacheDirectory));
+    }
+
+    @Test
+    void createPrivateCacheDirectory(@TempDir Path parent) throws IOException {
+        assumeTrue(parent.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path cacheDirectory = parent.resolve("cache");
+
+        NativeLibraryLoader.extractLibrary(cacheDirectory);
+
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(cacheDirectory);
+        assertFalse(permissions.contains(PosixFilePermission.GROUP_WRITE));
+        assertFalse(permissions.contains(PosixFilePermission.OTHERS_WRITE));
+    }
 }
@@ -0,0 +1,93 @@
+package jdave;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.ffi.NativeUserRoster;
+import club.minnced.discord.jdave.ffi.NativeUtils;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class NativeUserRosterTest {
+    @Test
+    void testAddAndRemove() {
+        try (NativeUserRoster roster = new NativeUserRoster(1L)) {
+            assertTrue(roster.add(2L));
+            assertTrue(roster.add(3L));
+            assertFalse(roster.add(2L));
+            assertEquals(List.of("1", "2", "3"), entries(roster));
+
+            assertTrue(roster.remove(2L));
+            assertFalse(roster.remove(2L));
+            assertFalse(roster.contains(2L));
+            assertTrue(roster.contains(3L));
+        }
+    }
+
+    @Test
+    void testRemoveMovesLastEntryIntoGap() {
+        try (NativeUserRoster roster = new NativeUserRoster(List.of("1", "2", "3", "4"))) {
+            roster.remove(2L);
+            assertEquals(List.of("1", "4", "3"), entries(roster));
+            // The slot past the end no longer points at a string
+            assertTrue(NativeUtils.isNull(roster.getArray().getAtIndex(ADDRESS, 3)));
+
+            // Removing the last entry needs no move
+            roster.remove(3L);
+            assertEquals(List.of("1", "4"), entries(roster));
+            assertTrue(NativeUtils.isNull(roster.getArray().getAtIndex(ADDRESS, 2)));
+        }
+    }
+
+    @Test
+    void testSlotsAreReused() {
+        try (NativeUserRoster roster = new NativeUserRoster(List.of("1", "2"))) {
+            MemorySegment slot = roster.getArray().getAtIndex(ADDRESS, 0);
+            roster.remove(1L);
+            roster.add(-1L);
+
+            // The unsigned id is longer than the previous one and still fits the recycled slot
+            assertEquals(slot.address(), roster.getArray().getAtIndex(ADDRESS, 1).address());
+            assertEquals(List.of("2", "18446744073709551615"), entries(roster));
+        }
+    }
+
+    @Test
+    void testMatchesReferenceAcrossGrowth() {
+        Random random = new Random(42);
+        long[] pool = random.longs(500).toArray();
+        Set<String> expected = new HashSet<>();
+
+        try (NativeUserRoster roster = new NativeUserRoster()) {
+            for (int i = 0; i < 5000; i++) {
+                long userId = pool[random.nextInt(pool.length)];
+                String encoded = Long.toUnsignedString(userId);
+                if (random.nextInt(3) > 0) {
+                    assertEquals(expected.add(encoded), roster.add(userId));
+                } else {
+                    assertEquals(expected.remove(encoded), roster.remove(userId));
+                }
+                assertEquals(expected.size(), roster.size());
+            }
+
+            List<String> entries = entries(roster);
+            assertEquals(expected, new HashSet<>(entries));
+            assertEquals(expected.size(), entries.size());
+        }
+    }
+
+    private static List<String> entries(NativeUserRoster roster) {
+        List<String> entries = new ArrayList<>(roster.size());
+        for (int i = 0; i < roster.size(); i++) {
+            entries.add(NativeUtils.asJavaString(roster.getArray().getAtIndex(ADDRESS, i)));
+        }
+        return entries;
+    }
+}
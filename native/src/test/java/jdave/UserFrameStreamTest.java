@@ -0,0 +1,235 @@
+package jdave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import club.minnced.discord.jdave.DaveMediaType;
+import club.minnced.discord.jdave.manager.DaveReceiveStreams;
+import club.minnced.discord.jdave.manager.DaveReceiveStreams.ReceiveResult;
+import club.minnced.discord.jdave.manager.DaveSessionManager;
+import club.minnced.discord.jdave.manager.FrameOverflowPolicy;
+import club.minnced.discord.jdave.manager.UserFrameStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.stream.IntStream;
+import org.jspecify.annotations.NonNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UserFrameStreamTest {
+    private static final long USER_ID = 2L;
+
+    private DaveSessionManager manager;
+
+    @BeforeEach
+    void setup() {
+        // Passthrough decryptors hand every frame back unchanged
+        manager = DaveSessionManager.create(1L, 10L, new NoopCallbacks());
+        manager.onSelectProtocolAck(0);
+        manager.addUser(USER_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void testFramesInOrder() {
+        try (DaveReceiveStreams streams = createStreams(16, FrameOverflowPolicy.DROP_OLDEST)) {
+            RecordingSubscriber subscriber = subscribe(streams);
+            subscriber.subscription.request(Long.MAX_VALUE);
+
+            for (int i = 0; i < 100; i++) {
+                assertEquals(ReceiveResult.SUCCESS, receive(streams, i));
+            }
+
+            assertEquals(range(0, 100), subscriber.frames);
+            assertEquals(0, streams.getStream(USER_ID).getPendingFrames());
+        }
+    }
+
+    @Test
+    void testDropOldestOnOverflow() {
+        try (DaveReceiveStreams streams = createStreams(4, FrameOverflowPolicy.DROP_OLDEST)) {
+            RecordingSubscriber subscriber = subscribe(streams);
+            for (int i = 0; i < 4; i++) {
+                assertEquals(ReceiveResult.SUCCESS, receive(streams, i));
+            }
+            assertEquals(ReceiveResult.DROPPED_OLDEST, receive(streams, 4));
+            assertEquals(ReceiveResult.DROPPED_OLDEST, receive(streams, 5));
+
+            subscriber.subscription.request(Long.MAX_VALUE);
+            assertEquals(range(2, 6), subscriber.frames);
+
+            UserFrameStream stream = streams.getStream(USER_ID);
+            assertEquals(6, stream.getReceivedFrames());
+            assertEquals(2, stream.getDroppedFrames());
+            assertEquals(0, stream.getRejectedFrames());
+        }
+    }
+
+    @Test
+    void testRejectOnOverflow() {
+        try (DaveReceiveStreams streams = createStreams(4, FrameOverflowPolicy.REJECT)) {
+            RecordingSubscriber subscriber = subscribe(streams);
+            for (int i = 0; i < 4; i++) {
+                assertEquals(ReceiveResult.SUCCESS, receive(streams, i));
+            }
+            assertEquals(ReceiveResult.REJECTED, receive(streams, 4));
+            assertEquals(ReceiveResult.REJECTED, receive(streams, 5));
+
+            subscriber.subscription.request(Long.MAX_VALUE);
+            assertEquals(range(0, 4), subscriber.frames);
+
+            UserFrameStream stream = streams.getStream(USER_ID);
+            assertEquals(4, stream.getReceivedFrames());
+            assertEquals(0, stream.getDroppedFrames());
+            assertEquals(2, stream.getRejectedFrames());
+
+            // Space freed by the subscriber is usable again
+            assertEquals(ReceiveResult.SUCCESS, receive(streams, 6));
+            assertEquals(List.of(0, 1, 2, 3, 6), subscriber.frames);
+        }
+    }
+
+    @Test
+    void testRequestAccounting() {
+        try (DaveReceiveStreams streams = createStreams(16, FrameOverflowPolicy.DROP_OLDEST)) {
+            RecordingSubscriber subscriber = subscribe(streams);
+            for (int i = 0; i < 10; i++) {
+                receive(streams, i);
+            }
+            assertTrue(subscriber.frames.isEmpty());
+
+            subscriber.subscription.request(3);
+            assertEquals(range(0, 3), subscriber.frames);
+            subscriber.subscription.request(2);
+            assertEquals(range(0, 5), subscriber.frames);
+            assertEquals(5, streams.getStream(USER_ID).getPendingFrames());
+
+            // Outstanding demand is used by the next frames as they arrive
+            subscriber.subscription.request(7);
+            receive(streams, 10);
+            receive(streams, 11);
+            receive(streams, 12);
+            assertEquals(range(0, 12), subscriber.frames);
+            assertEquals(1, streams.getStream(USER_ID).getPendingFrames());
+        }
+    }
+
+    @Test
+    void testInvalidRequest() {
+        try (DaveReceiveStreams streams = createStreams(16, FrameOverflowPolicy.DROP_OLDEST)) {
+            RecordingSubscriber subscriber = subscribe(streams);
+            receive(streams, 0);
+
+            subscriber.subscription.request(0);
+            assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+
+            subscriber.subscription.request(1);
+            receive(streams, 1);
+            assertTrue(subscriber.frames.isEmpty());
+            assertEquals(1, subscriber.signals);
+        }
+    }
+
+    @Test
+    void testCompleteOnClose() {
+        DaveReceiveStreams streams = createStreams(16, FrameOverflowPolicy.DROP_OLDEST);
+        RecordingSubscriber subscriber = subscribe(streams);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        receive(streams, 0);
+
+        streams.close();
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+        assertEquals(ReceiveResult.CLOSED, receive(streams, 1));
+        assertEquals(List.of(0), subscriber.frames);
+        assertEquals(1, subscriber.signals);
+    }
+
+    @Test
+    void testCompleteOnRemoveUser() {
+        try (DaveReceiveStreams streams = createStreams(16, FrameOverflowPolicy.DROP_OLDEST)) {
+            RecordingSubscriber subscriber = subscribe(streams);
+            UserFrameStream stream = streams.getStream(USER_ID);
+
+            manager.removeUser(USER_ID);
+            assertTrue(subscriber.completed);
+            // A later frame of the same user gets a fresh stream
+            assertNotSame(stream, streams.getStream(USER_ID));
+        }
+    }
+
+    @Test
+    void testDropUnknownUser() {
+        try (DaveReceiveStreams streams = createStreams(16, FrameOverflowPolicy.DROP_OLDEST)) {
+            ByteBuffer frame = ByteBuffer.allocateDirect(8);
+            assertEquals(ReceiveResult.UNKNOWN_USER, streams.receive(DaveMediaType.AUDIO, USER_ID + 1, frame));
+
+            RecordingSubscriber subscriber = subscribe(streams);
+            manager.removeUser(USER_ID);
+            assertEquals(ReceiveResult.UNKNOWN_USER, receive(streams, 0));
+            assertTrue(subscriber.completed);
+        }
+    }
+
+    private DaveReceiveStreams createStreams(int capacity, FrameOverflowPolicy overflowPolicy) {
+        return DaveReceiveStreams.create(
+                manager, Runnable::run, capacity, DaveReceiveStreams.DEFAULT_MAX_FRAME_SIZE, overflowPolicy);
+    }
+
+    private static RecordingSubscriber subscribe(DaveReceiveStreams streams) {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        streams.getStream(USER_ID).subscribe(subscriber);
+        return subscriber;
+    }
+
+    // 8 byte frames carrying their sequence number, never mistaken for an encrypted frame
+    private static ReceiveResult receive(DaveReceiveStreams streams, int sequence) {
+        ByteBuffer frame = ByteBuffer.allocateDirect(8).putInt(0, sequence);
+        return streams.receive(DaveMediaType.AUDIO, USER_ID, frame);
+    }
+
+    private static List<Integer> range(int from, int to) {
+        return IntStream.range(from, to).boxed().toList();
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<ByteBuffer> {
+        private final List<Integer> frames = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+        // Terminal signals, onError and onComplete together must arrive at most once
+        private int signals;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(@NonNull ByteBuffer item) {
+            frames.add(item.getInt(0));
+        }
+
+        @Override
+        public void onError(@NonNull Throwable throwable) {
+            error = throwable;
+            signals++;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            signals++;
+        }
+    }
+}
@@ -6,4 +6,4 @@ includeBuild("api/JDA") {
     dependencySubstitution { substitute(module("net.dv8tion:JDA")).using(project(":")) }
 }
 
-include("api", "native")
\ No newline at end of file
+include("api", "native", "benchmarks")
\ No newline at end of file